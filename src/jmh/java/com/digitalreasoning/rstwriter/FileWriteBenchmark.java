@@ -0,0 +1,85 @@
+package com.digitalreasoning.rstwriter;
+
+import com.digitalreasoning.rstwriter.bodyelement.Table;
+import com.digitalreasoning.rstwriter.directive.Admonition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing a large file through the PrintWriter of {@link FileWriter#writeTo(File)} against encoding it into a
+ * FileChannel with {@link FileWriter#writeTo(Path, java.nio.charset.Charset, java.nio.file.OpenOption...)} at different
+ * buffer sizes. Run with {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=FileWriteBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileWriteBenchmark {
+
+    @Param({"2000"})
+    public int sections;
+
+    @Param({"8192", "65536", "1048576"})
+    public int bufferSize;
+
+    private FileWriter writer;
+    private Path dir;
+    private Path path;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        RstFile.Builder file = RstFile.getBuilder("large");
+        for(int i = 0; i < sections; i++){
+            Heading.Builder heading = Heading.getBuilder("Section " + i);
+            for(int j = 0; j < 10; j++){
+                heading.openSubHeading("Subsection " + i + "." + j)
+                        .addParagraph("Paragraph with $I markup, a $I and some caf\u00e9 text.", Inline.bold("bold"),
+                                Inline.link("link"))
+                        .addBodyElement(RstBodyElement.bulletList("first item\nsecond item\nthird item"))
+                        .addBodyElement(Table.getBuilder().addCell("key").addCell("value").nextRow()
+                                .addCell("name " + j).addCell(new Admonition(Admonition.Type.NOTE, "note")).build())
+                        .closeSubHeading();
+            }
+            file.addHeading(heading.build());
+        }
+        writer = new FileWriter(file.build(), bufferSize);
+        dir = Files.createTempDirectory("rstwriter-benchmark");
+        path = dir.resolve("large.rst");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public void printWriter() throws IOException {
+        writer.writeTo(dir.toFile());
+    }
+
+    @Benchmark
+    public long channel() throws IOException {
+        return writer.writeTo(path, StandardCharsets.UTF_8);
+    }
+}
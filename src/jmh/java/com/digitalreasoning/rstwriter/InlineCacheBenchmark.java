@@ -0,0 +1,50 @@
+package com.digitalreasoning.rstwriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering the literal of one of a few thousand class names, creating the Inline each time with
+ * {@code create} and looking it up in an {@link InlineCache} with {@code cached}, from 4 threads. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=InlineCacheBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class InlineCacheBenchmark {
+    private static final int NAMES = 4000;
+
+    private final String[] names = new String[NAMES];
+    private final InlineCache cache = new InlineCache(NAMES * 2);
+
+    public InlineCacheBenchmark(){
+        for(int i = 0; i < NAMES; i++){
+            names[i] = "com.example.api.package" + (i % 50) + ".SomeClass" + i;
+        }
+    }
+
+    @Benchmark
+    public String create(){
+        return Inline.literal(names[ThreadLocalRandom.current().nextInt(NAMES)]).write();
+    }
+
+    @Benchmark
+    public String cached(){
+        return cache.literal(names[ThreadLocalRandom.current().nextInt(NAMES)]).write();
+    }
+}
@@ -0,0 +1,43 @@
+package com.digitalreasoning.rstwriter;
+
+import com.digitalreasoning.rstwriter.bodyelement.Paragraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building and rendering a paragraph from the same pattern over and over, parsing the pattern each time with
+ * {@code parsePattern} and filling in a compiled {@link InlineTemplate} with {@code fillTemplate}. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=InlineTemplateBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InlineTemplateBenchmark {
+    private static final String PATTERN = "Step $I failed on host $I after $I retries, see $I for details.";
+
+    private final InlineTemplate template = InlineTemplate.compile(PATTERN);
+    private final Inline[] inlines = {Inline.bold("build"), Inline.literal("node-17.example.com"),
+            Inline.italics("three"), Inline.link("the log", "https://example.com/log")};
+
+    @Benchmark
+    public String parsePattern(){
+        return new Paragraph(PATTERN, inlines).write();
+    }
+
+    @Benchmark
+    public String fillTemplate(){
+        return new Paragraph(template, inlines).write();
+    }
+}
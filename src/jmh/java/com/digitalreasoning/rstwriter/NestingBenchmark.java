@@ -0,0 +1,82 @@
+package com.digitalreasoning.rstwriter;
+
+import com.digitalreasoning.rstwriter.bodyelement.BulletList;
+import com.digitalreasoning.rstwriter.bodyelement.DefinitionList;
+import com.digitalreasoning.rstwriter.bodyelement.FieldList;
+import com.digitalreasoning.rstwriter.bodyelement.Paragraph;
+import com.digitalreasoning.rstwriter.directive.Admonition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures body elements nested {@code depth} levels deep, cycling through bullet lists, field lists, admonitions and
+ * definition lists, each level holding a few paragraphs of its own. {@code render} writes an already built element and
+ * {@code buildAndRender} also builds it. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=NestingBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NestingBenchmark {
+
+    @Param({"1", "4", "8", "16"})
+    public int depth;
+
+    private RstBodyElement nested;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        nested = build(depth);
+    }
+
+    static RstBodyElement build(int depth){
+        RstBodyElement element = new Paragraph("A leaf paragraph with $I markup\nspread over two lines.",
+                Inline.bold("bold"));
+        for(int i = 0; i < depth; i++){
+            switch(i % 4){
+                case 0:
+                    BulletList list = RstBodyElement.bulletList("first item\nsecond item");
+                    element = list.addItem(element).addItem("last item");
+                    break;
+                case 1:
+                    FieldList fields = RstBodyElement.fieldList().addItem("author", "someone");
+                    element = fields.addItem("nested", element).addItem("version", "1.0");
+                    break;
+                case 2:
+                    element = new Admonition(Admonition.Type.NOTE, "Before the nested element.").addContent(element)
+                            .addParagraph("After the nested element.");
+                    break;
+                default:
+                    DefinitionList definitions = RstBodyElement.definitionList().addItem("term", "definition");
+                    element = definitions.addItem("nested", element);
+                    break;
+            }
+        }
+        return element;
+    }
+
+    @Benchmark
+    public String render(){
+        return nested.write();
+    }
+
+    @Benchmark
+    public String buildAndRender(){
+        return build(depth).write();
+    }
+}
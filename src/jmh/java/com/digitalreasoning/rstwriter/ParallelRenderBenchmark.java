@@ -0,0 +1,76 @@
+package com.digitalreasoning.rstwriter;
+
+import com.digitalreasoning.rstwriter.bodyelement.Table;
+import com.digitalreasoning.rstwriter.directive.Admonition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares sequential rendering of a manual with thousands of top level sections against rendering it on ForkJoinPools
+ * of different sizes. Run with {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=ParallelRenderBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelRenderBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int cores;
+
+    @Param({"2000"})
+    public int sections;
+
+    private RstFile manual;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        RstFile.Builder file = RstFile.getBuilder("manual");
+        for(int i = 0; i < sections; i++){
+            Heading.Builder heading = Heading.getBuilder("Section " + i);
+            for(int j = 0; j < 20; j++){
+                heading.openSubHeading("Subsection " + i + "." + j)
+                        .addParagraph("Paragraph with $I markup and a $I.", Inline.bold("bold"), Inline.link("link"))
+                        .addBodyElement(RstBodyElement.bulletList("first item\nsecond item\nthird item"))
+                        .addBodyElement(Table.getBuilder().addCell("key").addCell("value").nextRow()
+                                .addCell("name " + j).addCell(new Admonition(Admonition.Type.NOTE, "note")).build())
+                        .closeSubHeading();
+            }
+            file.addHeading(heading.build());
+        }
+        manual = file.build();
+        pool = new ForkJoinPool(cores);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public String sequential(){
+        return manual.write();
+    }
+
+    @Benchmark
+    public String parallel(){
+        return manual.write(pool);
+    }
+}
@@ -0,0 +1,340 @@
+package com.digitalreasoning.rstwriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * The BundleWriter class streams many RstFiles into a single archive, a zip file or a gzipped tar file, without writing
+ * them to disk first. Each RstFile becomes one entry named {@code <title>.rst}, like {@link FileWriter#writeTo(java.io.File)}
+ * names its files. Zip entries are compressed as they are rendered; a tar entry needs its size in its header, so its
+ * encoded bytes are gathered first, one document at a time, in a buffer reused for the next entry.
+ *
+ * A BundleWriter is not thread-safe. {@link #finish()} completes the archive and leaves the stream open, while
+ * {@link #close()} completes the archive and closes the stream. An instance of the Builder class can be obtained by
+ * statically calling the {@code getBuilder} method.
+ */
+public class BundleWriter implements Closeable {
+    /**
+     * The kinds of archive a BundleWriter writes
+     */
+    public enum Format {
+        /**
+         * a zip file with one deflated entry per RstFile
+         */
+        ZIP,
+        /**
+         * a ustar tar file compressed with gzip
+         */
+        TAR_GZ
+    }
+
+    private static final int BLOCK = 512;
+    /**
+     * the size above which the tar entry buffer isn't kept for the next entry
+     */
+    private static final int MAX_RETAINED_BUFFER = 1 << 20;
+
+    private final Format format;
+    private final OutputStream archive;
+    private final ZipOutputStream zip;
+    private final GZIPOutputStream gzip;
+    private final Utf8Output utf8;
+    private final EncodingOutput encoding;
+    private ByteArrayOutputStream entry;
+    private long entries;
+    private long bytes;
+    private boolean finished;
+
+    private BundleWriter(Builder builder){
+        this.format = builder.format;
+        OutputStream out = builder.out;
+        if(format == Format.ZIP){
+            zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+            zip.setLevel(builder.level);
+            gzip = null;
+            archive = zip;
+        }
+        else{
+            zip = null;
+            int level = builder.level;
+            try{
+                gzip = new GZIPOutputStream(out, FileWriter.DEFAULT_BUFFER_SIZE){
+                    {
+                        def.setLevel(level);
+                    }
+                };
+            }catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+            archive = gzip;
+            entry = new ByteArrayOutputStream();
+        }
+        if(StandardCharsets.UTF_8.equals(builder.charset)){
+            utf8 = new Utf8Output(archive);
+            encoding = null;
+        }
+        else{
+            utf8 = null;
+            encoding = new EncodingOutput(builder.charset, ByteBuffer.allocate(8192));
+        }
+    }
+
+    /**
+     * Returns a Builder for a BundleWriter writing to the given stream
+     * @param out the stream the archive is written to
+     * @return a new Builder
+     */
+    public static Builder getBuilder(OutputStream out){
+        return new Builder(out);
+    }
+
+    /**
+     * Renders the parameter file into a new entry of the archive
+     * @param file the file to be added
+     * @return the number of bytes of the entry before compression
+     * @throws IOException if the stream throws an IOException, or if a zip archive already has an entry of that name
+     * @throws IllegalStateException if the archive is finished
+     */
+    public long add(RstFile file) throws IOException {
+        if(finished){
+            throw new IllegalStateException("The archive is finished");
+        }
+        String name = file.getContentBase().getTitle() + ".rst";
+        long size;
+        if(format == Format.ZIP){
+            zip.putNextEntry(new ZipEntry(name));
+            size = encode(file, zip);
+            zip.closeEntry();
+        }
+        else{
+            entry.reset();
+            size = encode(file, entry);
+            writeTarHeader(name, size);
+            entry.writeTo(gzip);
+            pad(size);
+            if(entry.size() > MAX_RETAINED_BUFFER){
+                entry = new ByteArrayOutputStream();
+            }
+        }
+        entries++;
+        bytes += size;
+        return size;
+    }
+
+    /**
+     * Renders each file of the parameter Iterable into a new entry of the archive
+     * @param files the files to be added
+     * @return this BundleWriter with the files added
+     * @throws IOException if the stream throws an IOException, or if a zip archive already has an entry of that name
+     */
+    public BundleWriter addAll(Iterable<RstFile> files) throws IOException {
+        for(RstFile file : files){
+            add(file);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of entries added so far
+     * @return the number of entries
+     */
+    public long getEntries(){
+        return entries;
+    }
+
+    /**
+     * Returns the number of bytes of all entries added so far, before compression
+     * @return the number of uncompressed bytes
+     */
+    public long getBytes(){
+        return bytes;
+    }
+
+    /**
+     * Completes the archive, writing what remains of it to the stream. The stream is neither flushed nor closed.
+     * Calling this method again has no effect.
+     * @throws IOException if the stream throws an IOException
+     */
+    public void finish() throws IOException {
+        if(finished){
+            return;
+        }
+        finished = true;
+        if(format == Format.ZIP){
+            zip.finish();
+        }
+        else{
+            gzip.write(new byte[2 * BLOCK]);
+            gzip.finish();
+        }
+    }
+
+    /**
+     * Completes the archive and closes the stream
+     * @throws IOException if the stream throws an IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try{
+            finish();
+        }finally{
+            archive.close();
+        }
+    }
+
+    private long encode(RstFile file, OutputStream out) throws IOException {
+        if(utf8 != null){
+            utf8.reset(out);
+            file.writeTo(utf8);
+            return utf8.finish();
+        }
+        encoding.reset(Channels.newChannel(out));
+        file.writeTo(encoding);
+        return encoding.finish();
+    }
+
+    //writes a ustar header, preceded by a pax header when the name doesn't fit in the ustar name field
+    private void writeTarHeader(String name, long size) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        long mtime = System.currentTimeMillis() / 1000;
+        if(nameBytes.length > 100 || nameBytes.length != name.length()){
+            byte[] record = paxRecord("path", name);
+            gzip.write(tarHeader("PaxHeader/" + Math.abs(name.hashCode()), record.length, mtime, (byte) 'x'));
+            gzip.write(record);
+            pad(record.length);
+            nameBytes = Arrays.copyOf(nameBytes, Math.min(nameBytes.length, 100));
+        }
+        byte[] header = tarHeader(null, size, mtime, (byte) '0');
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        checksum(header);
+        gzip.write(header);
+    }
+
+    private static byte[] tarHeader(String name, long size, long mtime, byte type){
+        byte[] header = new byte[BLOCK];
+        if(name != null){
+            byte[] nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, 100));
+        }
+        octal(header, 100, 8, 0644);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, mtime);
+        header[156] = type;
+        System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+        checksum(header);
+        return header;
+    }
+
+    //a pax record is "<length> <key>=<value>\n", where the length counts its own digits
+    private static byte[] paxRecord(String key, String value){
+        int length = key.length() + value.getBytes(StandardCharsets.UTF_8).length + 3;
+        int total = length + Integer.toString(length).length();
+        if(Integer.toString(total).length() > Integer.toString(length).length()){
+            total++;
+        }
+        return (total + " " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    //writes the value as zero padded octal digits followed by a NUL
+    private static void octal(byte[] header, int offset, int length, long value){
+        for(int i = offset + length - 2; i >= offset; i--){
+            header[i] = (byte) ('0' + (value & 7));
+            value >>>= 3;
+        }
+        header[offset + length - 1] = 0;
+    }
+
+    private static void checksum(byte[] header){
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long sum = 0;
+        for(byte b : header){
+            sum += b & 0xFF;
+        }
+        octal(header, 148, 7, sum);
+        header[155] = ' ';
+    }
+
+    private void pad(long size) throws IOException {
+        int remainder = (int) (size % BLOCK);
+        if(remainder != 0){
+            gzip.write(new byte[BLOCK - remainder]);
+        }
+    }
+
+    /**
+     * The Builder class configures a BundleWriter. By default the archive is a zip file of UTF-8 encoded entries,
+     * compressed at the default level of {@link Deflater}.
+     */
+    public static class Builder {
+        private final OutputStream out;
+        private Format format = Format.ZIP;
+        private int level = Deflater.DEFAULT_COMPRESSION;
+        private Charset charset = StandardCharsets.UTF_8;
+
+        /**
+         * Public constructor for the Builder of a BundleWriter
+         * @param out the stream the archive is written to
+         */
+        public Builder(OutputStream out){
+            this.out = out;
+        }
+
+        /**
+         * Sets the kind of archive written
+         * @param format the format of the archive
+         * @return this Builder with the format set
+         */
+        public Builder setFormat(Format format){
+            this.format = format;
+            return this;
+        }
+
+        /**
+         * Sets the compression level, from 0 (no compression) to 9 (best compression), or -1 for the default level
+         * @param level the compression level
+         * @return this Builder with the level set
+         * @throws IllegalArgumentException if the level isn't between -1 and 9
+         */
+        public Builder setCompressionLevel(int level){
+            if(level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION){
+                throw new IllegalArgumentException("Compression level must be between -1 and 9");
+            }
+            this.level = level;
+            return this;
+        }
+
+        /**
+         * Sets the charset the entries are encoded in
+         * @param charset the charset of the entries
+         * @return this Builder with the charset set
+         */
+        public Builder setCharset(Charset charset){
+            this.charset = charset;
+            return this;
+        }
+
+        /**
+         * Creates a BundleWriter with the configuration of this Builder. Nothing is written to the stream until the
+         * first entry is added, except for the gzip header of a tar file.
+         * @return a BundleWriter
+         * @throws UncheckedIOException if the gzip header of a tar file can't be written
+         */
+        public BundleWriter build(){
+            return new BundleWriter(this);
+        }
+    }
+}
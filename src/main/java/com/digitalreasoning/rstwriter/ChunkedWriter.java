@@ -0,0 +1,174 @@
+package com.digitalreasoning.rstwriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ChunkedWriter class streams RstFiles to an OutputStream such as a pipe or a socket, flushing it as the document
+ * is rendered instead of only once it is complete, so the reader can start on the text right away. The stream is
+ * flushed each time a given number of bytes was written since the last flush, after each top-level heading, or both,
+ * and again at the end of the document. After each flush, an optional {@link ProgressListener} is told the number of
+ * bytes written and the path of headings being rendered, which lets long renders be monitored.
+ *
+ * Text is encoded as UTF-8, as by {@link RstFile#writeTo(OutputStream)}. A ChunkedWriter is immutable and can write
+ * any number of files, from several threads at once. An instance of the Builder class can be obtained by statically
+ * calling the {@code getBuilder} method.
+ */
+public class ChunkedWriter {
+    private final long flushBytes;
+    private final boolean flushSections;
+    private final ProgressListener listener;
+
+    private ChunkedWriter(Builder builder){
+        this.flushBytes = builder.flushBytes;
+        this.flushSections = builder.flushSections;
+        this.listener = builder.listener;
+    }
+
+    /**
+     * Returns a Builder for a ChunkedWriter
+     * @return a new Builder
+     */
+    public static Builder getBuilder(){
+        return new Builder();
+    }
+
+    /**
+     * Writes the parameter file to the stream, flushing it as configured. The stream isn't closed.
+     * @param file the file to be written
+     * @param out the stream the encoded reStructuredText is written to
+     * @return the number of bytes written
+     * @throws IOException if the stream throws an IOException
+     */
+    public long write(RstFile file, OutputStream out) throws IOException {
+        Chunks chunks = new Chunks(out);
+        file.writeTo(chunks);
+        long bytes = chunks.utf8.finish();
+        chunks.flush(bytes);
+        return bytes;
+    }
+
+    //encodes the text and flushes the stream at the chunk and section boundaries, keeping track of the heading path
+    private final class Chunks implements SectionSink {
+        private final OutputStream out;
+        private final Utf8Output utf8;
+        private final List<String> path = new ArrayList<>();
+        private long flushed;
+
+        private Chunks(OutputStream out){
+            this.out = out;
+            this.utf8 = new Utf8Output(out);
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            utf8.append(csq);
+            check();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            utf8.append(csq, start, end);
+            check();
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            utf8.append(c);
+            check();
+            return this;
+        }
+
+        @Override
+        public void enterSection(String title){
+            path.add(title);
+        }
+
+        @Override
+        public void exitSection() throws IOException {
+            path.remove(path.size() - 1);
+            if(flushSections && path.isEmpty()){
+                utf8.flush();
+                flush(utf8.encoded());
+            }
+        }
+
+        private void check() throws IOException {
+            if(flushBytes > 0 && utf8.encoded() - flushed >= flushBytes){
+                utf8.flush();
+                flush(utf8.encoded());
+            }
+        }
+
+        private void flush(long bytes) throws IOException {
+            out.flush();
+            flushed = bytes;
+            if(listener != null){
+                listener.progress(bytes, Collections.unmodifiableList(new ArrayList<>(path)));
+            }
+        }
+    }
+
+    /**
+     * The Builder class configures a ChunkedWriter. By default the stream is flushed after each top-level heading only,
+     * and no listener is called.
+     */
+    public static class Builder {
+        private long flushBytes;
+        private boolean flushSections = true;
+        private ProgressListener listener;
+
+        /**
+         * Public constructor for the Builder of a ChunkedWriter
+         */
+        public Builder(){
+        }
+
+        /**
+         * Flushes the stream each time at least the given number of bytes were written since the last flush
+         * @param flushBytes the number of bytes between flushes, or 0 to flush at headings and at the end only
+         * @return this Builder with the number of bytes set
+         * @throws IllegalArgumentException if the number is negative
+         */
+        public Builder setFlushBytes(long flushBytes){
+            if(flushBytes < 0){
+                throw new IllegalArgumentException("The number of bytes between flushes can't be negative");
+            }
+            this.flushBytes = flushBytes;
+            return this;
+        }
+
+        /**
+         * Sets whether the stream is flushed after each top-level heading
+         * @param flushSections true to flush after each top-level heading
+         * @return this Builder with the setting changed
+         */
+        public Builder setFlushAfterSections(boolean flushSections){
+            this.flushSections = flushSections;
+            return this;
+        }
+
+        /**
+         * Sets the listener called after each flush
+         * @param listener the listener told of the progress of writes
+         * @return this Builder with the listener set
+         */
+        public Builder setListener(ProgressListener listener){
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Creates a ChunkedWriter with the configuration of this Builder
+         * @return a ChunkedWriter
+         */
+        public ChunkedWriter build(){
+            return new ChunkedWriter(this);
+        }
+    }
+}
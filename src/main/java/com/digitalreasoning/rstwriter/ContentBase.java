@@ -2,21 +2,26 @@ package com.digitalreasoning.rstwriter;
 
 import com.digitalreasoning.rstwriter.bodyelement.LinkDefinition;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * The ContentBase class is a container for the information added by the programmer. It takes RstElements
- * as arguments in its methods. It writes any RstBodyElements or Transitions to a string immediately and stores headings 
- * to be placed after the initial content.
+ * as arguments in its methods. It keeps a frozen copy of any RstBodyElements (see {@link RstBodyElement#freeze()}) along
+ * with Transitions and headings, and renders all of them only when it is written.
  */
 class ContentBase implements RstElement{
     /**
      * The heading title. If this content base represents a file, its value isn't used
      */
-    private String title;
-    private ArrayList<RstElement> elements;
+    private final String title;
+    private final SharedList<RstElement> elements;
     private boolean isFile = false;
     /**
      * The characters and order of precedence in the borders correspond to Sphinx's recommended list at
@@ -25,17 +30,24 @@ class ContentBase implements RstElement{
     private static final char[] borders = {'#', '*', '=', '-', '^', '"', // <- recommended
             '\'', ':', '.', '/', ';', '\\', ',', '`', '[', '{', '(', '<', '+', '_', '$', '%', '&', '@', '?', '!', ']', '}', ')', '>'}; //alternatives
     /**
-     * the Heading level. 0 is highest. Levels 1 and above are nested headings.
+     * the Heading level this content is written at when it is written on its own. 0 is highest. Levels 1 and above are
+     * nested headings. The depth of a nested heading is passed down while rendering and never stored, so built content can
+     * be shared between documents and written from several threads at once.
      */
-    private int level;
+    private final int level;
     /**
      * set of link targets for this heading
      */
-    private ArrayList<String> linkTargets;
+    private final SharedList<String> linkTargets;
     /**
      * list of definitions to be included at the end of this heading/file
      */
-    private ArrayList<Definition> definitions;
+    private final SharedList<Definition> definitions;
+    /**
+     * number of elements in this content, including the elements of nested headings. Used to decide which sections
+     * are worth rendering concurrently
+     */
+    private int size;
 
     protected ContentBase(String name){
         this(name, 0);
@@ -44,25 +56,35 @@ class ContentBase implements RstElement{
     protected ContentBase(String name, int level){
         this.title = name;
         this.level = level;
-        this.elements = new ArrayList<>();
-        this.linkTargets = new ArrayList<>();
-        this.definitions = new ArrayList<>();
+        this.elements = new SharedList<>();
+        this.linkTargets = new SharedList<>();
+        this.definitions = new SharedList<>();
     }
 
+    /**
+     * Creates an unmodifiable snapshot of the parameter content in constant time. The snapshot shares its lists, and
+     * thereby its nested headings, with the parameter content, but doesn't see anything added to it afterward.
+     */
     protected ContentBase(ContentBase cb){
-        this(cb.title, cb.level);
-        cb.elements.forEach(this.elements::add);
-        this.definitions.addAll(cb.definitions);
-        this.linkTargets.addAll(cb.linkTargets);
+        this.title = cb.title;
+        this.level = cb.level;
+        this.elements = cb.elements.snapshot();
+        this.definitions = cb.definitions.snapshot();
+        this.linkTargets = cb.linkTargets.snapshot();
+        this.size = cb.size;
     }
 
     protected void add(RstElement element){
-        if(element instanceof ContentBase || element instanceof ElementBox){
-            elements.add(element);
+        size++;
+        if(element instanceof ContentBase){
+            size += ((ContentBase) element).size;
+        }
+        if(element instanceof RstBodyElement){
+            elements.append(((RstBodyElement) element).freeze());
         }
         else
         {
-            elements.add(new ElementBox(element));
+            elements.append(element);
         }
     }
 
@@ -71,76 +93,245 @@ class ContentBase implements RstElement{
             throw new UnsupportedOperationException("Link targets aren't supported at the RstFile level");
         String str = linkDefinition.write();
         if(!linkTargets.contains(str))
-            linkTargets.add(str);
+            linkTargets.append(str);
     }
 
     protected void addDefinition(Definition def){
-        definitions.add(def);
+        definitions.append(def);
     }
 
     protected void isFile(){ isFile = true; }
 
     protected String getTitle(){ return title; }
 
+    protected int getLevel(){ return level; }
+
     @Override
     public String write(){
-        String returnString = "";
+        StringBuilder builder = new StringBuilder();
+        try{
+            writeTo(builder);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        writeTo(out, level, null, null);
+    }
+
+    /**
+     * Streams this content to the parameter OutputStream as UTF-8 encoded bytes
+     * @param out the stream the encoded reStructuredText is written to
+     * @return the number of bytes written
+     * @throws IOException if the stream throws an IOException
+     */
+    protected long writeTo(OutputStream out) throws IOException {
+        Utf8Output utf8 = new Utf8Output(out);
+        writeTo(utf8);
+        return utf8.finish();
+    }
+
+    /**
+     * Puts this content into the parameter ByteBuffer as UTF-8 encoded bytes
+     * @param buffer the buffer the encoded reStructuredText is put into
+     * @return the number of bytes written
+     */
+    protected int writeTo(ByteBuffer buffer){
+        Utf8Output utf8 = new Utf8Output(buffer);
+        try{
+            writeTo(utf8);
+            return (int) utf8.finish();
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Streams this content to the parameter Appendable, taking the text of nested headings from the parameter cache
+     * @param out the sink the reStructuredText is appended to
+     * @param cache the cache holding the text of previously rendered headings
+     * @throws IOException if the sink throws an IOException
+     */
+    protected void writeTo(Appendable out, RenderCache cache) throws IOException {
+        writeTo(out, level, null, cache);
+    }
+
+    //renders this content at the given depth, with nested headings taken from the cache. Used by the cache on a miss
+    String write(int depth, RenderCache cache){
+        StringBuilder builder = new StringBuilder();
+        try{
+            writeTo(builder, depth, null, cache);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Renders this content on the parameter pool. Runs of consecutive headings are rendered concurrently once they hold
+     * at least {@code threshold} elements, and smaller ones are rendered on the thread rendering their parent. The
+     * results are joined in order, so the output is identical to {@code write()}.
+     * @param pool the pool rendering the headings
+     * @param threshold the minimum number of elements rendered by a separate task
+     * @return the reStructuredText generated by this content
+     */
+    protected String write(ForkJoinPool pool, int threshold){
+        StringBuilder builder = new StringBuilder();
+        try{
+            writeTo(builder, pool, threshold);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Streams this content to the parameter Appendable, rendering headings concurrently on the parameter pool. Each
+     * rendered run of headings is appended as soon as it and everything before it is complete.
+     * @param out the sink the reStructuredText is appended to
+     * @param pool the pool rendering the headings
+     * @param threshold the minimum number of elements rendered by a separate task
+     * @throws IOException if the sink throws an IOException
+     */
+    protected void writeTo(Appendable out, ForkJoinPool pool, int threshold) throws IOException {
+        writeTo(out, level, forkSections(level, threshold, pool), null);
+    }
+
+    //splits the headings of this content into runs of consecutive headings holding at least threshold elements and
+    //starts a task for each run. Tasks are submitted to the pool, or forked if this is already called from a task
+    private Deque<SectionTask> forkSections(int depth, int threshold, ForkJoinPool pool){
+        Deque<SectionTask> sections = new ArrayDeque<>();
+        int i = 0;
+        while(i < elements.size()){
+            int weight = 0;
+            int j = i;
+            while(j < elements.size() && elements.get(j) instanceof ContentBase && weight < threshold){
+                weight += ((ContentBase) elements.get(j)).size + 1;
+                j++;
+            }
+            if(j == i){
+                i++;
+                continue;
+            }
+            if(weight >= threshold){
+                SectionTask task = new SectionTask(this, i, j, depth + 1, threshold);
+                if(pool == null){
+                    task.fork();
+                }
+                else{
+                    pool.execute(task);
+                }
+                sections.add(task);
+            }
+            i = j;
+        }
+        return sections;
+    }
+
+    //writes this content at the given heading depth. Runs of headings rendered by a task are taken, in order, from the
+    //sections queue; without a queue everything is rendered on this thread. With a cache, nested headings are taken
+    //from it instead of being rendered. A sink that is a SectionSink is told where each heading
+    //rendered on this thread starts and ends
+    private void writeTo(Appendable out, int depth, Deque<SectionTask> sections, RenderCache cache) throws IOException {
         for(String target : linkTargets){
-            returnString += target;
+            out.append(target);
         }
         if(!linkTargets.isEmpty()){
-            returnString += "\n";
+            out.append('\n');
         }
 
         if(!isFile){
-            returnString += border(title);
+            border(out, depth);
         }
-        for(RstElement element : elements){
-            if(element instanceof ContentBase)
+        for(int i = 0; i < elements.size(); i++){
+            RstElement element = elements.get(i);
+            if(sections != null && !sections.isEmpty() && sections.peek().from == i){
+                SectionTask task = sections.remove();
+                out.append(task.join());
+                i = task.to - 1;
+            }
+            else if(element instanceof ContentBase)
             {
                 ContentBase cb = (ContentBase) element;
-                cb.level = this.level + 1;
-                returnString += cb.write();
+                SectionSink sink = out instanceof SectionSink ? (SectionSink) out : null;
+                if(sink != null){
+                    sink.enterSection(cb.title);
+                }
+                if(cache != null){
+                    out.append(cache.get(cb, depth + 1));
+                }
+                else{
+                    cb.writeTo(out, depth + 1, null, null);
+                }
+                if(sink != null){
+                    sink.exitSection();
+                }
             }
             else{
-                returnString += element.write() + "\n";
+                element.writeTo(out);
+                out.append('\n');
             }
         }
         for(Definition d : definitions){
-            returnString += d.write();
+            d.writeTo(out);
         }
         if(!definitions.isEmpty())
         {
-            returnString += "\n";
+            out.append('\n');
         }
-
-        return returnString;
     }
 
-    private String border(String str){
-        String line = "";
-        for(int i = 0; i < str.length()+1; i++){
-            line += borders[level];
+    //renders a run of consecutive headings of a parent into a String, forking the rendering of their own headings
+    private static class SectionTask extends RecursiveTask<String> {
+        private static final long serialVersionUID = 1L;
+
+        private final ContentBase parent;
+        private final int from;
+        private final int to;
+        private final int depth;
+        private final int threshold;
+
+        private SectionTask(ContentBase parent, int from, int to, int depth, int threshold){
+            this.parent = parent;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+            this.threshold = threshold;
         }
-        String s = "";
-        if(level <= 1){
-            s += line + "\n";
+
+        @Override
+        protected String compute(){
+            StringBuilder builder = new StringBuilder();
+            try{
+                for(int i = from; i < to; i++){
+                    ContentBase cb = (ContentBase) parent.elements.get(i);
+                    cb.writeTo(builder, depth, cb.forkSections(depth, threshold, null), null);
+                }
+            }catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+            return builder.toString();
         }
-        s += title + "\n" + line + "\n\n";
-        return s;
     }
 
-    class ElementBox implements RstElement{
-        private String text;
-
-        private ElementBox(RstElement element){
-            text = element.write();
+    private void border(Appendable out, int depth) throws IOException {
+        char border = borders[depth];
+        if(depth <= 1){
+            line(out, border);
         }
+        out.append(title).append('\n');
+        line(out, border);
+        out.append('\n');
+    }
 
-        @Override
-        public String write(){
-            return text;
+    private void line(Appendable out, char border) throws IOException {
+        for(int i = 0; i < title.length()+1; i++){
+            out.append(border);
         }
+        out.append('\n');
     }
 
 }
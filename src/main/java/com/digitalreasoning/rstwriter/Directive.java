@@ -11,4 +11,13 @@ package com.digitalreasoning.rstwriter;
  * @see com.digitalreasoning.rstwriter.directive.BaseDirective
  */
 public interface Directive extends RstBodyElement {
+
+    /**
+     * A directive starts with its explicit markup, so it is never blank
+     * @return false
+     */
+    @Override
+    default boolean isBlank(){
+        return false;
+    }
 }
@@ -0,0 +1,465 @@
+package com.digitalreasoning.rstwriter;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * The DocumentSetWriter class renders and writes large sets of RstFiles to a directory in parallel. Each file is
+ * written to {@code <title>.rst} in the target directory, like {@link FileWriter#writeTo(java.io.File)} does, by a
+ * fixed number of threads. Files are taken from the Iterable or Stream only as threads become free to write them,
+ * with at most a bounded number of files waiting, so memory stays bounded however many files are written. A file that
+ * fails to render or write doesn't stop the others; its failure is collected in the returned {@link Summary}, along
+ * with throughput statistics.
+ *
+ * Where each file goes can be chosen with a {@link FileManifest}, which names files with a {@link NamingStrategy},
+ * possibly sharding them into subdirectories, gives colliding names a suffix and records the path of every title. A
+ * {@link TocTreeIndex} can be built as the files are written.
+ *
+ * A DocumentSetWriter can be used for any number of document sets. Without a manifest, files with the same title in one
+ * set overwrite each other in no particular order. An instance of the Builder class can be obtained by statically
+ * calling the {@code getBuilder} method.
+ */
+public class DocumentSetWriter {
+    private final Path directory;
+    private final int threads;
+    private final int maxPending;
+    private final Charset charset;
+    private final int bufferSize;
+    private final SkipUnchanged skipUnchanged;
+    private final FileManifest manifest;
+    private final TocTreeIndex index;
+
+    private DocumentSetWriter(Builder builder){
+        this.directory = builder.directory;
+        this.threads = builder.threads;
+        this.maxPending = builder.maxPending;
+        this.charset = builder.charset;
+        this.bufferSize = builder.bufferSize;
+        this.skipUnchanged = builder.skipUnchanged;
+        this.manifest = builder.manifest;
+        this.index = builder.index;
+    }
+
+    /**
+     * Returns a Builder for a DocumentSetWriter writing to the given directory
+     * @param directory the existing directory the .rst files are written to
+     * @return a new Builder
+     */
+    public static Builder getBuilder(Path directory){
+        return new Builder(directory);
+    }
+
+    /**
+     * Writes all files of the stream, returning once all of them are written or have failed. The stream is consumed
+     * lazily, from the calling thread.
+     * @param files the files to be written
+     * @return the outcome of the batch
+     * @throws InterruptedException if the calling thread is interrupted while waiting; files already handed to the
+     * threads are abandoned
+     */
+    public Summary write(Stream<RstFile> files) throws InterruptedException {
+        return write(files.iterator());
+    }
+
+    /**
+     * Writes all files of the Iterable, returning once all of them are written or have failed. The Iterable is
+     * iterated lazily, from the calling thread.
+     * @param files the files to be written
+     * @return the outcome of the batch
+     * @throws InterruptedException if the calling thread is interrupted while waiting; files already handed to the
+     * threads are abandoned
+     */
+    public Summary write(Iterable<RstFile> files) throws InterruptedException {
+        return write(files.iterator());
+    }
+
+    private Summary write(Iterator<RstFile> files) throws InterruptedException {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new WorkerFactory());
+        ThreadLocal<FileWriter> writers = ThreadLocal.withInitial(() -> new FileWriter(null, bufferSize));
+        Semaphore pending = new Semaphore(maxPending);
+        LongAdder written = new LongAdder();
+        LongAdder skipped = new LongAdder();
+        LongAdder bytes = new LongAdder();
+        ConcurrentLinkedQueue<Failure> failures = new ConcurrentLinkedQueue<>();
+        AtomicReference<Error> error = new AtomicReference<>();
+        IndexFeed feed = index == null ? null : new IndexFeed(index);
+        try{
+            while(files.hasNext()){
+                pending.acquire();
+                RstFile file;
+                Path path;
+                try{
+                    file = files.next();
+                    path = pathOf(file.getContentBase().getTitle());
+                }catch(RuntimeException e){
+                    //a file without a path, such as one with a title that isn't valid in a path, is left out
+                    failures.add(new Failure(null, e));
+                    pending.release();
+                    continue;
+                }
+                long sequence = feed == null ? 0 : feed.next();
+                executor.execute(() -> {
+                    boolean done = false;
+                    try{
+                        if(!path.normalize().startsWith(directory.normalize())){
+                            throw new IOException(path + " is outside of " + directory);
+                        }
+                        if(manifest != null){
+                            Files.createDirectories(path.getParent());
+                        }
+                        FileWriter writer = writers.get().setFile(file);
+                        if(skipUnchanged == null){
+                            bytes.add(writer.writeTo(path, charset));
+                            written.increment();
+                        }
+                        else if(writer.writeTo(path, charset, skipUnchanged)){
+                            bytes.add(Files.size(path));
+                            written.increment();
+                        }
+                        else{
+                            skipped.increment();
+                        }
+                        done = true;
+                    }catch(IOException | RuntimeException e){
+                        failures.add(new Failure(path, e));
+                    }catch(Error e){
+                        error.compareAndSet(null, e);
+                    }finally{
+                        writers.get().setFile(null);
+                        if(feed != null){
+                            try{
+                                feed.complete(sequence, done ? path : null);
+                            }catch(IOException | RuntimeException e){
+                                failures.add(new Failure(path, e));
+                            }
+                        }
+                        pending.release();
+                    }
+                });
+            }
+            pending.acquire(maxPending);
+        }finally{
+            executor.shutdownNow();
+        }
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        if(error.get() != null){
+            throw error.get();
+        }
+        return new Summary(written.sum(), skipped.sum(), bytes.sum(), System.nanoTime() - start,
+                new ArrayList<>(failures));
+    }
+
+    //paths are assigned on the calling thread, so a manifest assigns them in the order of the files
+    private Path pathOf(String title){
+        if(manifest == null){
+            return directory.resolve(title + ".rst");
+        }
+        return directory.resolve(manifest.assign(title));
+    }
+
+    //adds the files that were written or skipped to the index in the order they were taken from the source, whatever
+    //the order they complete in
+    private static final class IndexFeed {
+        private final TocTreeIndex index;
+        private final Map<Long, Path> completed = new HashMap<>();
+        private long next;
+        private long cursor;
+
+        private IndexFeed(TocTreeIndex index){
+            this.index = index;
+        }
+
+        private synchronized long next(){
+            return next++;
+        }
+
+        //path is null for a file that failed, which is left out of the index
+        private synchronized void complete(long sequence, Path path) throws IOException {
+            completed.put(sequence, path);
+            while(completed.containsKey(cursor)){
+                Path file = completed.remove(cursor++);
+                if(file != null){
+                    index.add(file);
+                }
+            }
+        }
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+        private static final AtomicInteger POOLS = new AtomicInteger();
+        private final int pool = POOLS.incrementAndGet();
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable){
+            Thread thread = new Thread(runnable, "rstwriter-" + pool + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * The Builder class configures a DocumentSetWriter. By default files are written in UTF-8, by as many threads as
+     * there are available processors, with up to twice as many files waiting.
+     */
+    public static class Builder {
+        private final Path directory;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private int maxPending = -1;
+        private Charset charset = StandardCharsets.UTF_8;
+        private int bufferSize = FileWriter.DEFAULT_BUFFER_SIZE;
+        private SkipUnchanged skipUnchanged;
+        private FileManifest manifest;
+        private TocTreeIndex index;
+
+        /**
+         * Public constructor for the Builder of a DocumentSetWriter
+         * @param directory the existing directory the .rst files are written to
+         */
+        public Builder(Path directory){
+            this.directory = directory;
+        }
+
+        /**
+         * Sets the number of threads rendering and writing files
+         * @param threads the number of threads
+         * @return this Builder with the number of threads set
+         * @throws IllegalArgumentException if the number isn't positive
+         */
+        public Builder setThreads(int threads){
+            if(threads <= 0){
+                throw new IllegalArgumentException("The number of threads must be positive");
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of files taken from the source and not yet written, including the ones being written
+         * @param maxPending the maximum number of pending files; at least the number of threads to keep them all busy
+         * @return this Builder with the maximum set
+         * @throws IllegalArgumentException if the maximum isn't positive
+         */
+        public Builder setMaxPending(int maxPending){
+            if(maxPending <= 0){
+                throw new IllegalArgumentException("The maximum number of pending files must be positive");
+            }
+            this.maxPending = maxPending;
+            return this;
+        }
+
+        /**
+         * Sets the charset the files are encoded in
+         * @param charset the charset of the files
+         * @return this Builder with the charset set
+         */
+        public Builder setCharset(Charset charset){
+            this.charset = charset;
+            return this;
+        }
+
+        /**
+         * Sets the size of the buffer each thread encodes through; see {@link FileWriter#FileWriter(RstFile, int)}
+         * @param bufferSize the size of the buffer in bytes
+         * @return this Builder with the buffer size set
+         * @throws IllegalArgumentException if the buffer size is smaller than 16 bytes
+         */
+        public Builder setBufferSize(int bufferSize){
+            if(bufferSize < FileWriter.MIN_BUFFER_SIZE){
+                throw new IllegalArgumentException("Buffer size must be at least " + FileWriter.MIN_BUFFER_SIZE + " bytes");
+            }
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * Leaves files whose content didn't change alone, as detected by the parameter mode, and writes the others
+         * atomically. The mode's counts add up over every batch written with it
+         * @param mode how unchanged files are detected
+         * @return this Builder with the mode set
+         */
+        public Builder setSkipUnchanged(SkipUnchanged mode){
+            this.skipUnchanged = mode;
+            return this;
+        }
+
+        /**
+         * Names the files with the paths assigned by the parameter manifest, creating their subdirectories as needed,
+         * instead of writing {@code <title>.rst} files to the directory. The manifest records the paths of all document
+         * sets written with it and can be saved afterward
+         * @param manifest the manifest assigning the paths of the files
+         * @return this Builder with the manifest set
+         */
+        public Builder setManifest(FileManifest manifest){
+            this.manifest = manifest;
+            return this;
+        }
+
+        /**
+         * Adds each file written or left unchanged to the parameter index, in the order the files are taken from the
+         * source. Files that fail are left out of the index, and a page of the index that can't be written is reported
+         * as a failure of the file whose addition wrote it. The index is finished by the caller, once every set of
+         * documents it lists is written
+         * @param index the index of the written files
+         * @return this Builder with the index set
+         */
+        public Builder setIndex(TocTreeIndex index){
+            this.index = index;
+            return this;
+        }
+
+        /**
+         * Creates a DocumentSetWriter with the configuration of this Builder
+         * @return a DocumentSetWriter
+         * @throws IllegalArgumentException if the directory doesn't exist
+         */
+        public DocumentSetWriter build(){
+            if(!Files.isDirectory(directory)){
+                throw new IllegalArgumentException("Directory must be an existing directory");
+            }
+            if(maxPending == -1){
+                maxPending = 2 * threads;
+            }
+            return new DocumentSetWriter(this);
+        }
+    }
+
+    /**
+     * A file that couldn't be rendered or written, with the reason
+     */
+    public static final class Failure {
+        private final Path path;
+        private final Exception cause;
+
+        private Failure(Path path, Exception cause){
+            this.path = path;
+            this.cause = cause;
+        }
+
+        /**
+         * Returns the path the file was to be written to, or null if the file failed before it got a path
+         * @return the path of the file, or null
+         */
+        public Path getPath(){
+            return path;
+        }
+
+        /**
+         * Returns the exception thrown while naming, rendering or writing the file
+         * @return the cause of the failure
+         */
+        public Exception getCause(){
+            return cause;
+        }
+
+        @Override
+        public String toString(){
+            return path + ": " + cause;
+        }
+    }
+
+    /**
+     * The outcome of writing a set of documents: how many files were written, skipped or failed, and how fast
+     */
+    public static final class Summary {
+        private final long written;
+        private final long skipped;
+        private final long bytes;
+        private final long nanos;
+        private final List<Failure> failures;
+
+        private Summary(long written, long skipped, long bytes, long nanos, List<Failure> failures){
+            this.written = written;
+            this.skipped = skipped;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.failures = Collections.unmodifiableList(failures);
+        }
+
+        /**
+         * Returns the number of files written
+         * @return the number of files written
+         */
+        public long getWritten(){
+            return written;
+        }
+
+        /**
+         * Returns the number of files left alone because they didn't change
+         * @return the number of files skipped
+         */
+        public long getSkipped(){
+            return skipped;
+        }
+
+        /**
+         * Returns the files that failed, in no particular order
+         * @return the failures of the batch
+         */
+        public List<Failure> getFailures(){
+            return failures;
+        }
+
+        /**
+         * Returns the number of bytes written
+         * @return the number of bytes written
+         */
+        public long getBytes(){
+            return bytes;
+        }
+
+        /**
+         * Returns how long the batch took, from the first file taken to the last one written
+         * @return the elapsed time in nanoseconds
+         */
+        public long getElapsedNanos(){
+            return nanos;
+        }
+
+        /**
+         * Returns the number of files handled per second, whether they were written, skipped or failed
+         * @return the files per second
+         */
+        public double getFilesPerSecond(){
+            return perSecond(written + skipped + failures.size());
+        }
+
+        /**
+         * Returns the number of bytes written per second
+         * @return the bytes per second
+         */
+        public double getBytesPerSecond(){
+            return perSecond(bytes);
+        }
+
+        private double perSecond(long count){
+            return nanos == 0 ? 0 : count * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString(){
+            return String.format("%d written, %d skipped, %d failed, %d bytes in %.3f s (%.1f files/s, %.1f bytes/s)",
+                    written, skipped, failures.size(), bytes, nanos / 1e9, getFilesPerSecond(), getBytesPerSecond());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.digitalreasoning.rstwriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * The EncodingOutput class is an Appendable that encodes the text appended to it with a CharsetEncoder and writes the
+ * bytes to a channel. Chars are gathered in a char buffer, encoded into a byte buffer whenever it fills up, and the
+ * byte buffer is written to the channel whenever it is full. Chars that can't be encoded are replaced, the way a Writer
+ * replaces them.
+ *
+ * An EncodingOutput can be pointed at another channel with {@link #reset(WritableByteChannel)} and reused, keeping its
+ * buffers.
+ */
+final class EncodingOutput implements Appendable {
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars;
+    private final ByteBuffer bytes;
+    private WritableByteChannel channel;
+    private long written;
+
+    EncodingOutput(Charset charset, ByteBuffer bytes){
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = bytes;
+        this.chars = CharBuffer.allocate(Math.max(bytes.capacity() / 2, 16));
+    }
+
+    Charset charset(){
+        return encoder.charset();
+    }
+
+    ByteBuffer buffer(){
+        return bytes;
+    }
+
+    /**
+     * Discards anything pending and directs the following output to the parameter channel
+     */
+    void reset(WritableByteChannel channel){
+        encoder.reset();
+        chars.clear();
+        bytes.clear();
+        written = 0;
+        this.channel = channel;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+        if(csq == null){
+            return append("null");
+        }
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        if(csq == null){
+            return append("null", start, end);
+        }
+        while(start < end){
+            if(!chars.hasRemaining()){
+                encode(false);
+            }
+            int count = Math.min(chars.remaining(), end - start);
+            if(csq instanceof String){
+                chars.put((String) csq, start, start + count);
+            }
+            else{
+                for(int i = start; i < start + count; i++){
+                    chars.put(csq.charAt(i));
+                }
+            }
+            start += count;
+        }
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        if(!chars.hasRemaining()){
+            encode(false);
+        }
+        chars.put(c);
+        return this;
+    }
+
+    /**
+     * Encodes whatever is pending, flushes the encoder and writes all bytes to the channel. The channel isn't closed.
+     * @return the total number of bytes written since the last reset
+     * @throws IOException if the channel throws an IOException
+     */
+    long finish() throws IOException {
+        encode(true);
+        while(encoder.flush(bytes).isOverflow()){
+            drain();
+        }
+        drain();
+        channel = null;
+        return written;
+    }
+
+    //a high surrogate at the end of the chars is kept for the next round, so pairs are never split
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        CoderResult result = encoder.encode(chars, bytes, endOfInput);
+        while(result.isOverflow()){
+            drain();
+            result = encoder.encode(chars, bytes, endOfInput);
+        }
+        if(result.isError()){
+            result.throwException();
+        }
+        chars.compact();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while(bytes.hasRemaining()){
+            written += channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
@@ -0,0 +1,298 @@
+package com.digitalreasoning.rstwriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The Escaper class escapes text by prefixing the characters that are significant in some context with an escape
+ * character. Each character can be escaped wherever it appears, or only where it appears doubled, as the ** of bold
+ * text or the `` of literal text: "a ** b" becomes "a \** b" while a single * is left alone. Doubled characters are
+ * matched from left to right, so "***" becomes "\***".
+ *
+ * The characters to escape are looked up in a table, so escaping takes a single pass over the text and no regular
+ * expression. When nothing needs escaping, {@link #escape(String)} returns the parameter String itself; otherwise the
+ * escaped text is written into a buffer, which can be provided with {@link #escape(CharSequence, StringBuilder)}, or
+ * straight to a sink with {@link #escapeTo(CharSequence, Appendable)}.
+ * Only ASCII characters can be escaped. An Escaper is immutable and thread-safe. An instance of the Builder class can
+ * be obtained by statically calling the {@code getBuilder} method.
+ */
+public final class Escaper {
+    /**
+     * Escapes * and ` with a backslash, like {@link Inline#escapeRst(String)}
+     */
+    public static final Escaper RST = getBuilder('\\').addChars("*`").build();
+
+    /**
+     * Escapes every character that can start or end inline markup in reStructuredText with a backslash: the backslash
+     * itself, *, `, | and _. Text escaped this way is shown as is, which makes it suitable for untrusted text such as
+     * log lines or user names.
+     */
+    public static final Escaper RST_MARKUP = getBuilder('\\').addChars("\\*`|_").build();
+
+    private static final byte SINGLE = 1;
+    private static final byte DOUBLED = 2;
+
+    private final char escape;
+    private final byte[] table;
+
+    private Escaper(Builder builder){
+        this.escape = builder.escape;
+        this.table = builder.table.clone();
+    }
+
+    /**
+     * Returns a Builder for an Escaper prefixing characters with the given escape character
+     * @param escape the character written before each escaped character, e.g. '\'
+     * @return a new Builder
+     */
+    public static Builder getBuilder(char escape){
+        return new Builder(escape);
+    }
+
+    /**
+     * Escapes the parameter String
+     * @param str the String to be escaped
+     * @return the escaped String, or the parameter itself if nothing needs escaping
+     */
+    public String escape(String str){
+        int first = indexOfEscape(str, 0);
+        if(first == -1){
+            return str;
+        }
+        StringBuilder out = new StringBuilder(str.length() + 8);
+        out.append(str, 0, first);
+        try{
+            escape(str, first, out);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Escapes the parameter text, appending it to the parameter buffer
+     * @param str the text to be escaped
+     * @param out the buffer the escaped text is appended to
+     * @return the buffer
+     */
+    public StringBuilder escape(CharSequence str, StringBuilder out){
+        int first = indexOfEscape(str, 0);
+        if(first == -1){
+            return out.append(str);
+        }
+        out.append(str, 0, first);
+        try{
+            escape(str, first, out);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return out;
+    }
+
+    /**
+     * Escapes the parameter text, appending it to the parameter sink
+     * @param str the text to be escaped
+     * @param out the sink the escaped text is appended to
+     * @throws IOException if the sink throws an IOException
+     */
+    public void escapeTo(CharSequence str, Appendable out) throws IOException {
+        int first = indexOfEscape(str, 0);
+        if(first == -1){
+            out.append(str);
+            return;
+        }
+        out.append(str, 0, first);
+        escape(str, first, out);
+    }
+
+    /**
+     * Returns the length of the parameter text once escaped, without escaping it
+     * @param str the text to be measured
+     * @return the length of the escaped text
+     */
+    public int escapedLength(CharSequence str){
+        int length = str.length();
+        int i = indexOfEscape(str, 0);
+        while(i != -1){
+            length++;
+            i = indexOfEscape(str, table[str.charAt(i)] == DOUBLED ? i + 2 : i + 1);
+        }
+        return length;
+    }
+
+    /**
+     * Returns whether the parameter text has anything to escape
+     * @param str the text to be checked
+     * @return true if escaping the text changes it
+     */
+    public boolean needsEscaping(CharSequence str){
+        return indexOfEscape(str, 0) != -1;
+    }
+
+    //appends the text from the index on, which is the index of a character or pair to escape
+    private void escape(CharSequence str, int from, Appendable out) throws IOException {
+        int length = str.length();
+        int start = from;
+        int i = from;
+        while(i != -1){
+            out.append(str, start, i).append(escape);
+            if(table[str.charAt(i)] == DOUBLED){
+                out.append(str.charAt(i)).append(str.charAt(i + 1));
+                start = i + 2;
+            }
+            else{
+                out.append(str.charAt(i));
+                start = i + 1;
+            }
+            i = indexOfEscape(str, start);
+        }
+        out.append(str, start, length);
+    }
+
+    //the index of the next character to escape, or of the first character of the next pair to escape
+    private int indexOfEscape(CharSequence str, int from){
+        int length = str.length();
+        for(int i = from; i < length; i++){
+            char c = str.charAt(i);
+            if(c >= 128){
+                continue;
+            }
+            byte type = table[c];
+            if(type == SINGLE || (type == DOUBLED && i + 1 < length && str.charAt(i + 1) == c)){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a sink escaping the text appended to it into the parameter sink. A character that may be the first of a
+     * doubled pair is held back until the next one is appended, so {@link Escaping#finish()} must be called once the
+     * text is complete.
+     * @param out the sink the escaped text is appended to
+     * @return the escaping sink
+     */
+    Escaping escaping(Appendable out){
+        return new Escaping(out);
+    }
+
+    /**
+     * A sink escaping text as it is appended, for text that is produced in pieces
+     */
+    final class Escaping implements Appendable {
+        private final Appendable out;
+        private boolean held;
+        private char heldChar;
+
+        private Escaping(Appendable out){
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            if(csq == null){
+                return append("null");
+            }
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            for(int i = start; i < end; i++){
+                append(csq.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            if(held){
+                held = false;
+                if(c == heldChar){
+                    out.append(escape).append(heldChar).append(c);
+                    return this;
+                }
+                out.append(heldChar);
+            }
+            byte type = c < 128 ? table[c] : 0;
+            if(type == SINGLE){
+                out.append(escape).append(c);
+            }
+            else if(type == DOUBLED){
+                held = true;
+                heldChar = c;
+            }
+            else{
+                out.append(c);
+            }
+            return this;
+        }
+
+        /**
+         * Appends the character held back, if any
+         * @throws IOException if the sink throws an IOException
+         */
+        void finish() throws IOException {
+            if(held){
+                held = false;
+                out.append(heldChar);
+            }
+        }
+    }
+
+    /**
+     * The Builder class configures an Escaper. The escape character isn't escaped unless it is added as well.
+     */
+    public static class Builder {
+        private final char escape;
+        private final byte[] table = new byte[128];
+
+        /**
+         * Public constructor for the Builder of an Escaper
+         * @param escape the character written before each escaped character
+         */
+        public Builder(char escape){
+            this.escape = escape;
+        }
+
+        /**
+         * Adds characters that are escaped wherever they appear
+         * @param chars the characters to escape
+         * @return this Builder with the characters added
+         * @throws IllegalArgumentException if a character isn't ASCII
+         */
+        public Builder addChars(String chars){
+            return add(chars, SINGLE);
+        }
+
+        /**
+         * Adds characters that are escaped only where they appear doubled; the escape character is written before the
+         * pair
+         * @param chars the characters to escape when doubled
+         * @return this Builder with the characters added
+         * @throws IllegalArgumentException if a character isn't ASCII
+         */
+        public Builder addDoubledChars(String chars){
+            return add(chars, DOUBLED);
+        }
+
+        private Builder add(String chars, byte type){
+            for(int i = 0; i < chars.length(); i++){
+                char c = chars.charAt(i);
+                if(c >= 128){
+                    throw new IllegalArgumentException("Only ASCII characters can be escaped: " + c);
+                }
+                table[c] = type;
+            }
+            return this;
+        }
+
+        /**
+         * Creates an Escaper with the configuration of this Builder
+         * @return an Escaper
+         */
+        public Escaper build(){
+            return new Escaper(this);
+        }
+    }
+}
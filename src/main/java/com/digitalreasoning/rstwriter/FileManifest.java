@@ -0,0 +1,185 @@
+package com.digitalreasoning.rstwriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The FileManifest class assigns each RstFile of a document set a path of its own and records which title went to which
+ * path. Paths come from a {@link NamingStrategy}; when a path was already assigned, to a duplicate title or to a title
+ * the strategy maps to the same name, a suffix is added before its extension ({@code name-2.rst}, {@code name-3.rst}
+ * and so on). Paths are compared ignoring case, so they don't collide on case-insensitive file systems either.
+ *
+ * The manifest can be saved as a UTF-8 text file with one {@code <title>\t<path>} line per file, and loaded again to look
+ * up where a title was written, or to assign paths for more files without colliding with the saved ones. A title that
+ * is in the loaded manifest is assigned the path it was saved with, so a document set written again keeps its paths.
+ * Tabs, line breaks and backslashes in titles and paths are escaped with a backslash. A FileManifest is thread-safe.
+ */
+public final class FileManifest {
+    private static final String HEADER = "# rstwriter manifest";
+
+    private final NamingStrategy strategy;
+    private final List<String[]> entries = new ArrayList<>();
+    private final Map<String, String> paths = new HashMap<>();
+    private final Set<String> assigned = new HashSet<>();
+    //the loaded paths of each title that haven't been assigned again yet, in the order they were saved
+    private final Map<String, Deque<String>> loaded = new HashMap<>();
+
+    /**
+     * Creates an empty manifest assigning paths with the parameter strategy
+     * @param strategy the strategy naming the files
+     */
+    public FileManifest(NamingStrategy strategy){
+        this.strategy = strategy;
+    }
+
+    /**
+     * Assigns a path to a file with the given title, adding a suffix if the path of the strategy is already assigned. If
+     * the title was loaded with the manifest, the path it was saved with is returned instead; a title saved more than
+     * once gets its saved paths in order.
+     * @param title the title of the RstFile
+     * @return the path of its file, relative to the directory of the document set, with parts separated by '/'
+     */
+    public synchronized String assign(String title){
+        Deque<String> saved = loaded.get(title);
+        if(saved != null){
+            String path = saved.poll();
+            if(saved.isEmpty()){
+                loaded.remove(title);
+            }
+            return path;
+        }
+        String path = strategy.pathOf(title);
+        if(!assigned.add(path.toLowerCase(Locale.ROOT))){
+            int slash = path.lastIndexOf('/');
+            int dot = path.lastIndexOf('.');
+            if(dot <= slash + 1){
+                dot = path.length();
+            }
+            String candidate;
+            int suffix = 2;
+            do{
+                candidate = path.substring(0, dot) + "-" + suffix++ + path.substring(dot);
+            }while(!assigned.add(candidate.toLowerCase(Locale.ROOT)));
+            path = candidate;
+        }
+        record(title, path);
+        return path;
+    }
+
+    private void record(String title, String path){
+        entries.add(new String[]{title, path});
+        paths.putIfAbsent(title, path);
+    }
+
+    /**
+     * Returns the path assigned to the first file with the given title
+     * @param title the title of the RstFile
+     * @return the relative path of its file, or null if no file with that title is in the manifest
+     */
+    public synchronized String getPath(String title){
+        return paths.get(title);
+    }
+
+    /**
+     * Returns the number of paths assigned
+     * @return the number of files in the manifest
+     */
+    public synchronized int size(){
+        return entries.size();
+    }
+
+    /**
+     * Saves the manifest to the given file, replacing it if it exists
+     * @param file the path of the manifest file
+     * @throws IOException if the file can't be written
+     */
+    public synchronized void writeTo(Path file) throws IOException {
+        try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)){
+            writer.write(HEADER);
+            writer.write('\n');
+            StringBuilder line = new StringBuilder();
+            for(String[] entry : entries){
+                line.setLength(0);
+                escape(entry[0], line);
+                line.append('\t');
+                escape(entry[1], line);
+                line.append('\n');
+                writer.append(line);
+            }
+        }
+    }
+
+    /**
+     * Loads a manifest saved by {@link #writeTo(Path)}. The loaded manifest assigns the saved titles their saved paths,
+     * and paths assigned to other titles don't collide with the saved ones.
+     * @param file the path of the manifest file
+     * @param strategy the strategy naming files assigned from now on
+     * @return the loaded manifest
+     * @throws IOException if the file can't be read or isn't a manifest
+     */
+    public static FileManifest load(Path file, NamingStrategy strategy) throws IOException {
+        FileManifest manifest = new FileManifest(strategy);
+        try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)){
+            if(!HEADER.equals(reader.readLine())){
+                throw new IOException(file + " isn't a manifest");
+            }
+            String line;
+            while((line = reader.readLine()) != null){
+                int tab = line.indexOf('\t');
+                if(tab == -1){
+                    throw new IOException("Malformed manifest line: " + line);
+                }
+                String title = unescape(line.substring(0, tab));
+                String path = unescape(line.substring(tab + 1));
+                manifest.record(title, path);
+                manifest.assigned.add(path.toLowerCase(Locale.ROOT));
+                manifest.loaded.computeIfAbsent(title, t -> new ArrayDeque<>()).add(path);
+            }
+        }
+        return manifest;
+    }
+
+    private static void escape(String s, StringBuilder out){
+        for(int i = 0; i < s.length(); i++){
+            char c = s.charAt(i);
+            switch(c){
+                case '\\': out.append("\\\\"); break;
+                case '\t': out.append("\\t"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                default: out.append(c);
+            }
+        }
+    }
+
+    private static String unescape(String s){
+        if(s.indexOf('\\') == -1){
+            return s;
+        }
+        StringBuilder out = new StringBuilder(s.length());
+        for(int i = 0; i < s.length(); i++){
+            char c = s.charAt(i);
+            if(c == '\\' && i + 1 < s.length()){
+                char next = s.charAt(++i);
+                out.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            }
+            else{
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
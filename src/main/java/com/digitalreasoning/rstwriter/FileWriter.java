@@ -1,46 +1,532 @@
 package com.digitalreasoning.rstwriter;
 
 import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
 import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
 import javax.tools.StandardLocation;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.AsynchronousByteChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * The FileWriter class writes an RstFile to the desired medium. It supports writing to an Appendable, File, or Filer.
+ * The FileWriter class writes an RstFile to the desired medium. It supports writing to an Appendable, OutputStream (as UTF-8),
+ * File, Path or channel (in any charset), or Filer. Writing to a Path can skip files whose content didn't change; see
+ * {@link SkipUnchanged}. Very large files can be encoded straight into memory-mapped regions of the file with
+ * {@code writeMapped}.
+ * The reStructuredText is streamed to the medium as it is generated, so the whole document is never held in memory.
  *
  */
 public class FileWriter {
+    /**
+     * The size in bytes of the buffer used when writing to a Path or a channel, unless another size is given
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    static final int MIN_BUFFER_SIZE = 16;
+    /**
+     * The size in bytes of each region of a file mapped by {@link #writeMapped(Path)}
+     */
+    static final long MAPPED_WINDOW_SIZE = 64L * 1024 * 1024;
+
     private RstFile file;
+    private final int bufferSize;
+    /**
+     * encodes into a direct buffer allocated on the first write to a Path or channel and reused by later ones
+     */
+    private EncodingOutput encoding;
 
     public FileWriter(RstFile file){
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a FileWriter that encodes through a buffer of the given size when writing to a Path or a channel.
+     * Larger buffers mean fewer system calls on large files.
+     * @param file the file to be written
+     * @param bufferSize the size of the byte buffer in bytes
+     * @throws IllegalArgumentException if the buffer size is smaller than 16 bytes
+     */
+    public FileWriter(RstFile file, int bufferSize){
+        if(bufferSize < MIN_BUFFER_SIZE){
+            throw new IllegalArgumentException("Buffer size must be at least " + MIN_BUFFER_SIZE + " bytes");
+        }
+        this.file = file;
+        this.bufferSize = bufferSize;
+    }
+
+    //points this writer at another file, keeping its buffers; used by writers of many files
+    FileWriter setFile(RstFile file){
         this.file = file;
+        return this;
     }
 
     public void writeTo(Appendable out) throws IOException {
-        out.append(file.write());
+        file.writeTo(out);
+    }
+
+    public long writeTo(OutputStream out) throws IOException {
+        return file.writeTo(out);
     }
 
     public void writeTo(File f) throws IOException {
         if(f.exists() && f.isDirectory()) {
             File rst = new File(f.getCanonicalPath() + "/" + file.getContentBase().getTitle() + ".rst");
             rst.createNewFile();
-            PrintWriter w = new PrintWriter(rst);
-            w.write(file.write());
-            w.close();
+            try(PrintWriter w = new PrintWriter(rst)){
+                file.writeTo(w);
+            }
         }
         else{
             throw new IllegalArgumentException("File must be an existing directory");
         }
     }
 
+    /**
+     * Writes the file to the given path in the given charset. The text is encoded as it is rendered into a direct
+     * buffer that is written to a FileChannel each time it fills up, so neither the text nor its encoding is ever held
+     * in memory as a whole. Without options, the file is created if needed and truncated otherwise; {@code WRITE} is
+     * always added to the given options. A FileWriter reuses its buffer across writes, so it must not be used by
+     * several threads at once.
+     * @param path the path of the .rst file
+     * @param charset the charset the text is encoded in
+     * @param options options specifying how the file is opened, as for {@link FileChannel#open(Path, OpenOption...)}
+     * @return the number of bytes written
+     * @throws IOException if the file can't be opened or written
+     */
+    public long writeTo(Path path, Charset charset, OpenOption... options) throws IOException {
+        Set<OpenOption> openOptions = new HashSet<>(Arrays.asList(options));
+        if(openOptions.isEmpty()){
+            openOptions.add(StandardOpenOption.CREATE);
+            openOptions.add(StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        openOptions.add(StandardOpenOption.WRITE);
+        try(FileChannel channel = FileChannel.open(path, openOptions)){
+            return writeTo(channel, charset);
+        }
+    }
+
+    /**
+     * Writes the file to the given channel in the given charset, encoding the text as it is rendered. The channel is
+     * neither flushed nor closed.
+     * @param channel the channel the encoded text is written to
+     * @param charset the charset the text is encoded in
+     * @return the number of bytes written
+     * @throws IOException if the channel throws an IOException
+     */
+    public long writeTo(WritableByteChannel channel, Charset charset) throws IOException {
+        if(encoding == null){
+            encoding = new EncodingOutput(charset, ByteBuffer.allocateDirect(bufferSize));
+        }
+        else if(!encoding.charset().equals(charset)){
+            encoding = new EncodingOutput(charset, encoding.buffer());
+        }
+        encoding.reset(channel);
+        file.writeTo(encoding);
+        return encoding.finish();
+    }
+
+    /**
+     * Writes the file to the given path in the given charset, unless the file already holds exactly the bytes that
+     * would be written. The file is rendered once, into a temporary file in the same directory, and the bytes are
+     * digested as they are written. The digest is then compared as specified by the mode, which also counts the files
+     * written and skipped: the temporary file of an unchanged file is deleted, and that of a changed file is moved into
+     * place atomically where the file system supports it.
+     * @param path the path of the .rst file
+     * @param charset the charset the text is encoded in
+     * @param mode how unchanged files are detected, and the counts of files written and skipped
+     * @return true if the file was written, false if it was left alone
+     * @throws IOException if the file can't be read, written or moved
+     */
+    public boolean writeTo(Path path, Charset charset, SkipUnchanged mode) throws IOException {
+        MessageDigest digest = sha256();
+        Path sidecar = path.resolveSibling(path.getFileName() + SkipUnchanged.SIDECAR_EXTENSION);
+        Path temp = createTemp(path);
+        byte[] rendered;
+        try{
+            long length;
+            try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)){
+                length = writeTo(new DigestChannel(channel, digest), charset);
+            }
+            rendered = digest.digest();
+            if(Files.isRegularFile(path)){
+                boolean unchanged;
+                if(mode.usesSidecarDigests()){
+                    unchanged = Files.isRegularFile(sidecar) && toHex(rendered)
+                            .equals(new String(Files.readAllBytes(sidecar), StandardCharsets.US_ASCII).trim());
+                }
+                else{
+                    unchanged = Files.size(path) == length && MessageDigest.isEqual(rendered, digest(path, digest));
+                }
+                if(unchanged){
+                    mode.skipped();
+                    return false;
+                }
+            }
+            moveIntoPlace(temp, path);
+        }finally{
+            Files.deleteIfExists(temp);
+        }
+        //the digest is only recorded once the file holding those bytes is in place
+        if(mode.usesSidecarDigests()){
+            temp = createTemp(sidecar);
+            try{
+                Files.write(temp, toHex(rendered).getBytes(StandardCharsets.US_ASCII));
+                moveIntoPlace(temp, sidecar);
+            }finally{
+                Files.deleteIfExists(temp);
+            }
+        }
+        mode.written();
+        return true;
+    }
+
+    /**
+     * Writes the file to the given path on the given executor, without blocking the calling thread. The text is encoded
+     * in chunks the size of this writer's buffer, and each chunk is written to a FileChannel before the next one is
+     * rendered, so only one chunk of the document is held in memory. The writes block the executor's thread: the text is
+     * streamed as it is rendered, and rendering can't be suspended until a write completes, so the executor should be
+     * one meant for blocking work rather than an event loop or the common ForkJoinPool. Async writes use their own
+     * buffer, so they can run alongside other writes of this FileWriter.
+     * @param path the path of the .rst file, created if needed and truncated otherwise
+     * @param charset the charset the text is encoded in
+     * @param executor the executor the text is rendered and written on
+     * @return a future completed with the number of bytes written, or exceptionally if the file can't be written
+     */
+    public CompletableFuture<Long> writeAsync(Path path, Charset charset, Executor executor){
+        return CompletableFuture.supplyAsync(() -> {
+            try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+                return writeChunks(channel, charset);
+            }catch(IOException e){
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Writes the file to the given channel on the given executor, without blocking the calling thread. The text is
+     * encoded in chunks the size of this writer's buffer, and each chunk is written to the channel before the next one
+     * is rendered, so only one chunk of the document is held in memory. As with
+     * {@link #writeAsync(Path, Charset, Executor)}, the executor's thread waits for each write to complete.
+     * @param channel the channel the encoded text is written to; it isn't closed
+     * @param charset the charset the text is encoded in
+     * @param executor the executor the text is rendered on
+     * @return a future completed with the number of bytes written, or exceptionally if the channel fails
+     */
+    public CompletableFuture<Long> writeAsync(AsynchronousByteChannel channel, Charset charset, Executor executor){
+        return CompletableFuture.supplyAsync(() -> {
+            try{
+                return writeChunks(new ByteChannelWrites(channel), charset);
+            }catch(IOException e){
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private long writeChunks(WritableByteChannel channel, Charset charset) throws IOException {
+        EncodingOutput chunks = new EncodingOutput(charset, ByteBuffer.allocateDirect(bufferSize));
+        chunks.reset(channel);
+        file.writeTo(chunks);
+        return chunks.finish();
+    }
+
+    /**
+     * Writes the file to the given path in UTF-8 through memory-mapped regions of the file. The exact size of the
+     * output is measured first (see {@link RstFile#renderedLength()}), the file is sized accordingly, and the text is
+     * encoded straight into mapped windows of the file as it is rendered, so very large documents are written without
+     * copying them through a heap or channel buffer. Measuring is a full render of its own, so the file is rendered
+     * twice; a length measured earlier can be passed to {@link #writeMapped(Path, RenderedLength)} instead.
+     * @param path the path of the .rst file, created if needed and replaced otherwise
+     * @return the number of bytes written
+     * @throws IOException if the file can't be opened, mapped or written
+     */
+    public long writeMapped(Path path) throws IOException {
+        return writeMapped(path, file.renderedLength());
+    }
+
+    /**
+     * Writes the file to the given path in UTF-8 through memory-mapped regions of the file, using a length measured
+     * earlier instead of measuring the file again. Without a length, the file is streamed as by
+     * {@code writeTo(path, UTF_8)}.
+     * @param path the path of the .rst file, created if needed and replaced otherwise
+     * @param length the rendered length of the file, or null if it isn't known
+     * @return the number of bytes written
+     * @throws IOException if the file can't be opened, mapped or written, or if its content doesn't match the length
+     */
+    public long writeMapped(Path path, RenderedLength length) throws IOException {
+        if(length == null){
+            return writeTo(path, StandardCharsets.UTF_8);
+        }
+        return writeMapped(path, length.getUtf8Bytes(), MAPPED_WINDOW_SIZE);
+    }
+
+    //writes size bytes through windows of at most windowSize bytes, mapped one after the other
+    long writeMapped(Path path, long size, long windowSize) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            Utf8Output utf8 = new Utf8Output(new MappedWindows(channel, size, windowSize));
+            file.writeTo(utf8);
+            long written = utf8.finish();
+            if(written != size){
+                throw new IOException("Rendered " + written + " bytes where " + size + " were measured");
+            }
+            return written;
+        }
+    }
+
+    /**
+     * Writes the file as a resource named {@code <title>.rst} in the root package of the class output. The text is
+     * streamed into the resource's Writer, so it is encoded in the charset the Filer uses for resources, such as the
+     * one given to javac with {@code -encoding}. See
+     * {@link #writeTo(Filer, JavaFileManager.Location, CharSequence, Element...)} to always write UTF-8.
+     * @param filer the Filer of the annotation processing environment
+     * @throws IOException if the resource can't be created or written
+     */
     public void writeTo(Filer filer) throws IOException {
         FileObject fo = filer.createResource(StandardLocation.CLASS_OUTPUT, "",
                 file.getContentBase().getTitle() + ".rst");
-        Writer w = fo.openWriter();
-        w.write(file.write());
-        w.close();
+        try(Writer w = fo.openWriter()){
+            file.writeTo(w);
+        }
+    }
+
+    /**
+     * Writes the file as a resource named {@code <title>.rst}, created by the given Filer in the given location and
+     * package. The text is streamed into the resource's OutputStream as UTF-8 as it is rendered, whatever the encoding
+     * of the Filer. Passing the elements the file was generated from lets incremental builds tell which sources the
+     * resource depends on.
+     * @param filer the Filer of the annotation processing environment
+     * @param location the location of the resource, such as {@code StandardLocation.CLASS_OUTPUT}
+     * @param pkg the package of the resource, or "" for none
+     * @param originatingElements the types or packages the file was generated from
+     * @return the number of bytes written
+     * @throws IOException if the resource can't be created or written
+     * @throws javax.annotation.processing.FilerException if the resource was already created in this run
+     */
+    public long writeTo(Filer filer, JavaFileManager.Location location, CharSequence pkg,
+                        Element... originatingElements) throws IOException {
+        FileObject fo = filer.createResource(location, pkg, file.getContentBase().getTitle() + ".rst",
+                originatingElements);
+        try(OutputStream out = fo.openOutputStream()){
+            return file.writeTo(out);
+        }
+    }
+
+    private byte[] digest(Path path, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = encoding.buffer();
+        buffer.clear();
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            while(channel.read(buffer) != -1){
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+
+    /*
+     * Creates an empty temporary file next to the parameter path. Unlike Files.createTempFile, which makes the file
+     * private to its owner, the file gets the permissions of a new file, as with writeTo(Path), and those of the file it
+     * will replace if that file exists. Its name keeps at most 128 UTF-8 bytes of the file name, so that it stays within
+     * the 255 bytes file systems allow however long the name is.
+     */
+    private static Path createTemp(Path path) throws IOException {
+        Path dir = path.toAbsolutePath().getParent();
+        String name = path.getFileName().toString();
+        int end = 0;
+        int bytes = 0;
+        while(end < name.length()){
+            int c = name.codePointAt(end);
+            bytes += c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4;
+            if(bytes > 128){
+                break;
+            }
+            end += Character.charCount(c);
+        }
+        String prefix = "." + name.substring(0, end) + ".";
+        Path temp;
+        while(true){
+            temp = dir.resolve(prefix + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try{
+                Files.createFile(temp);
+                break;
+            }catch(FileAlreadyExistsException e){
+                //another name is drawn
+            }
+        }
+        try{
+            PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+            if(view != null && Files.exists(path)){
+                Files.setPosixFilePermissions(temp, view.readAttributes().permissions());
+            }
+        }catch(IOException | RuntimeException e){
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    private static void moveIntoPlace(Path temp, Path path) throws IOException {
+        try{
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }catch(AtomicMoveNotSupportedException e){
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static MessageDigest sha256(){
+        try{
+            return MessageDigest.getInstance("SHA-256");
+        }catch(NoSuchAlgorithmException e){
+            throw new IllegalStateException("SHA-256 isn't available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes){
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for(byte b : bytes){
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    //a channel that digests the bytes it writes to another channel
+    private static final class DigestChannel implements WritableByteChannel {
+        private final WritableByteChannel channel;
+        private final MessageDigest digest;
+
+        private DigestChannel(WritableByteChannel channel, MessageDigest digest){
+            this.channel = channel;
+            this.digest = digest;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            ByteBuffer written = src.duplicate();
+            int length = channel.write(src);
+            written.limit(written.position() + length);
+            digest.update(written);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen(){
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    //an OutputStream over a file of known size, putting the bytes into mapped windows of the file
+    private static final class MappedWindows extends OutputStream {
+        private final FileChannel channel;
+        private final long size;
+        private final long windowSize;
+        private MappedByteBuffer window;
+        private long mapped;
+
+        private MappedWindows(FileChannel channel, long size, long windowSize){
+            this.channel = channel;
+            this.size = size;
+            this.windowSize = windowSize;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while(len > 0){
+                if(window == null || !window.hasRemaining()){
+                    nextWindow();
+                }
+                int n = Math.min(len, window.remaining());
+                window.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void nextWindow() throws IOException {
+            if(mapped == size){
+                throw new IOException("Rendered more than the " + size + " bytes measured");
+            }
+            long length = Math.min(windowSize, size - mapped);
+            window = channel.map(FileChannel.MapMode.READ_WRITE, mapped, length);
+            mapped += length;
+        }
+    }
+
+    //waits for a write to an asynchronous channel issued by the thread rendering the file
+    private static int await(Future<Integer> write) throws IOException {
+        try{
+            return write.get();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing");
+        }catch(ExecutionException e){
+            if(e.getCause() instanceof IOException){
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    //writes each chunk to an asynchronous byte channel, one write at a time as the channel requires
+    private static final class ByteChannelWrites implements WritableByteChannel {
+        private final AsynchronousByteChannel channel;
+
+        private ByteChannelWrites(AsynchronousByteChannel channel){
+            this.channel = channel;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return await(channel.write(src));
+        }
+
+        @Override
+        public boolean isOpen(){
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close(){
+        }
     }
 }
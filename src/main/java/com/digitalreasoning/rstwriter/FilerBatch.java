@@ -0,0 +1,154 @@
+package com.digitalreasoning.rstwriter;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The FilerBatch class writes many RstFiles as resources of an annotation processor in one processing round. Files
+ * are queued with the elements they were generated from, and {@link #write()} creates a resource named
+ * {@code <title>.rst} for each of them in the batch's location and package, streaming the text into it as UTF-8 through
+ * one reused {@link RenderContext}.
+ *
+ * A Filer creates each resource at most once per compilation, so a FilerBatch rejects a file whose resource it already
+ * queued or wrote rather than failing halfway through a round. A FilerBatch is not thread-safe. An instance of the
+ * Builder class can be obtained by statically calling the {@code getBuilder} method.
+ */
+public class FilerBatch {
+    private final Filer filer;
+    private final JavaFileManager.Location location;
+    private final CharSequence pkg;
+    private final RenderContext context = new RenderContext();
+    private final List<Pending> pending = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+
+    private FilerBatch(Builder builder){
+        this.filer = builder.filer;
+        this.location = builder.location;
+        this.pkg = builder.pkg;
+    }
+
+    /**
+     * Returns a Builder for a FilerBatch creating resources with the given Filer
+     * @param filer the Filer of the annotation processing environment
+     * @return a new Builder
+     */
+    public static Builder getBuilder(Filer filer){
+        return new Builder(filer);
+    }
+
+    /**
+     * Queues the parameter file, to be written by the next call to {@link #write()}
+     * @param file the file to be written
+     * @param originatingElements the types or packages the file was generated from
+     * @return this FilerBatch with the file queued
+     * @throws IllegalArgumentException if a file with the same title was already queued or written by this batch
+     */
+    public FilerBatch add(RstFile file, Element... originatingElements){
+        String name = file.getContentBase().getTitle() + ".rst";
+        if(!names.add(name)){
+            throw new IllegalArgumentException("A resource named " + name + " was already added to this batch");
+        }
+        pending.add(new Pending(file, name, originatingElements));
+        return this;
+    }
+
+    /**
+     * Returns the number of files queued and not yet written
+     * @return the number of queued files
+     */
+    public int size(){
+        return pending.size();
+    }
+
+    /**
+     * Creates and writes a resource for each queued file, in the order they were added. Files whose resource was
+     * created before a failure are no longer queued, including a file that failed while being written, since the Filer
+     * won't create its resource again; a file whose resource couldn't be created and the ones after it stay queued, so
+     * calling this method again retries them.
+     * @return the number of bytes written
+     * @throws IOException if a resource can't be created or written
+     */
+    public long write() throws IOException {
+        long bytes = 0;
+        int created = 0;
+        try{
+            for(Pending p : pending){
+                FileObject fo = filer.createResource(location, pkg, p.name, p.originatingElements);
+                created++;
+                try(OutputStream out = fo.openOutputStream()){
+                    bytes += p.file.writeTo(out, context);
+                }
+            }
+        }finally{
+            pending.subList(0, created).clear();
+        }
+        return bytes;
+    }
+
+    private static final class Pending {
+        private final RstFile file;
+        private final String name;
+        private final Element[] originatingElements;
+
+        private Pending(RstFile file, String name, Element[] originatingElements){
+            this.file = file;
+            this.name = name;
+            this.originatingElements = originatingElements;
+        }
+    }
+
+    /**
+     * The Builder class configures a FilerBatch. By default resources are created in the root package of
+     * {@code StandardLocation.CLASS_OUTPUT}.
+     */
+    public static class Builder {
+        private final Filer filer;
+        private JavaFileManager.Location location = StandardLocation.CLASS_OUTPUT;
+        private CharSequence pkg = "";
+
+        /**
+         * Public constructor for the Builder of a FilerBatch
+         * @param filer the Filer of the annotation processing environment
+         */
+        public Builder(Filer filer){
+            this.filer = filer;
+        }
+
+        /**
+         * Sets the location the resources are created in
+         * @param location the location of the resources, such as {@code StandardLocation.SOURCE_OUTPUT}
+         * @return this Builder with the location set
+         */
+        public Builder setLocation(JavaFileManager.Location location){
+            this.location = location;
+            return this;
+        }
+
+        /**
+         * Sets the package the resources are created in
+         * @param pkg the package of the resources, or "" for none
+         * @return this Builder with the package set
+         */
+        public Builder setPackage(CharSequence pkg){
+            this.pkg = pkg;
+            return this;
+        }
+
+        /**
+         * Creates a FilerBatch with the configuration of this Builder
+         * @return a FilerBatch
+         */
+        public FilerBatch build(){
+            return new FilerBatch(this);
+        }
+    }
+}
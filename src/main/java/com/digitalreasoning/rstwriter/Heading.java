@@ -1,5 +1,8 @@
 package com.digitalreasoning.rstwriter;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Stack;
 
 import com.digitalreasoning.rstwriter.bodyelement.LinkDefinition;
@@ -42,9 +45,12 @@ import com.digitalreasoning.rstwriter.bodyelement.Paragraph;
  *
  * Same level as Third Heading
  * ===========================
+ *
+ * A built Heading is immutable and thread-safe. Its level is decided while it is written, so the same Heading can be
+ * added to several RstFiles or Headings at different depths and written from several threads at once.
  */
 public class Heading implements RstElement {
-    private ContentBase content;
+    private final ContentBase content;
 
     protected Heading(ContentBase content){
         this.content = content;
@@ -67,6 +73,102 @@ public class Heading implements RstElement {
         return content.write();
     }
 
+    /**
+     * Streams the content (the final reStructuredText) of this Heading to the given Appendable without building the
+     * whole document in memory first.
+     * @param out the sink the reStructuredText is appended to
+     * @throws IOException if the sink throws an IOException
+     */
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        content.writeTo(out);
+    }
+
+    /**
+     * Streams the content of this Heading to the given OutputStream as UTF-8 encoded bytes. ASCII text is copied
+     * straight to the bytes, without going through a Writer or CharsetEncoder. The stream is neither flushed nor closed.
+     * @param out the stream the encoded reStructuredText is written to
+     * @return the number of bytes written
+     * @throws IOException if the stream throws an IOException
+     */
+    public long writeTo(OutputStream out) throws IOException {
+        return content.writeTo(out);
+    }
+
+    /**
+     * Writes the content of this Heading into the given ByteBuffer as UTF-8 encoded bytes, starting at its position.
+     * {@code renderedLength().getUtf8Bytes()} tells how much room is needed.
+     * @param buffer the buffer the encoded reStructuredText is put into
+     * @return the number of bytes written
+     * @throws java.nio.BufferOverflowException if the buffer doesn't have enough room
+     */
+    public int writeTo(ByteBuffer buffer){
+        return content.writeTo(buffer);
+    }
+
+    /**
+     * Writes the content of this Heading to a single String, rendering it in the buffers of the parameter context
+     * @param context the context whose buffers are reused
+     * @return the reStructuredText generated by this Heading.
+     */
+    public String write(RenderContext context){
+        return context.write(content);
+    }
+
+    /**
+     * Streams the content of this Heading to the given OutputStream as UTF-8 encoded bytes, staging them in the
+     * buffer of the parameter context. The stream is neither flushed nor closed.
+     * @param out the stream the encoded reStructuredText is written to
+     * @param context the context whose buffers are reused
+     * @return the number of bytes written
+     * @throws IOException if the stream throws an IOException
+     */
+    public long writeTo(OutputStream out, RenderContext context) throws IOException {
+        return context.writeTo(content, out);
+    }
+
+    /**
+     * Writes the content of this Heading into the given ByteBuffer as UTF-8 encoded bytes, staging them in the
+     * buffer of the parameter context
+     * @param buffer the buffer the encoded reStructuredText is put into
+     * @param context the context whose buffers are reused
+     * @return the number of bytes written
+     * @throws java.nio.BufferOverflowException if the buffer doesn't have enough room
+     */
+    public int writeTo(ByteBuffer buffer, RenderContext context){
+        return context.writeTo(content, buffer);
+    }
+
+    /**
+     * Writes the content of this Heading to a single String, taking it (and any of its subheadings) from the parameter
+     * cache when it was rendered before.
+     * @param cache the cache holding the text of previously rendered Headings
+     * @return the reStructuredText generated by this Heading.
+     */
+    public String write(RenderCache cache){
+        return cache.get(content, content.getLevel());
+    }
+
+    /**
+     * Streams the content of this Heading to the given Appendable, taking it (and any of its subheadings) from the
+     * parameter cache when it was rendered before.
+     * @param out the sink the reStructuredText is appended to
+     * @param cache the cache holding the text of previously rendered Headings
+     * @throws IOException if the sink throws an IOException
+     */
+    public void writeTo(Appendable out, RenderCache cache) throws IOException {
+        out.append(write(cache));
+    }
+
+    /**
+     * Measures the exact size of the reStructuredText generated by this Heading by rendering it into a sink that only
+     * counts, so the text isn't kept but the rendering work is done in full
+     * @return the rendered length of this Heading in chars and UTF-8 bytes
+     */
+    public RenderedLength renderedLength(){
+        return RenderedLength.of(this);
+    }
+
     /**
      * The Builder class is used to instantiate a Heading object. The Builder takes all of the content to be included
      * in the Heading and stores it until {@code build()} is called. An instance of the Builder can be obtained via
@@ -100,6 +202,27 @@ public class Heading implements RstElement {
             return this;
         }
 
+        /**
+         * Adds a paragraph to the content of this Builder, filling in the template with the {@link Inline} arguments.
+         * @param template The compiled text of the paragraph
+         * @param inlines the Inline arguments of the template
+         * @return this Builder with the paragraph added
+         */
+        public Builder addParagraph(InlineTemplate template, Inline... inlines){
+            contentBase.add(new Paragraph(template, inlines));
+            return this;
+        }
+
+        /**
+         * Adds a paragraph to the content of this Builder, whose text is the parameter {@link Inline}
+         * @param content The text of the paragraph
+         * @return this Builder with the paragraph added
+         */
+        public Builder addParagraph(Inline content){
+            contentBase.add(new Paragraph(content));
+            return this;
+        }
+
         /**
          * Adds a body element to the content of this Builder
          * @param bodyElement the body element to be added (order of additions will be preserved in the Heading)
@@ -200,7 +323,9 @@ public class Heading implements RstElement {
         }
 
         /**
-         * Creates a Heading object initialized with the content provided to the Builder
+         * Creates a Heading object initialized with the content provided to the Builder. Building takes constant time,
+         * since a Heading shares its content with the Builder and with earlier Headings, and modifications to the
+         * Builder afterward will not be seen in any previous Headings.
          * @return an initialized, unmodifiable Heading object
          * @throws IllegalStateException if the builder still has an open subheading
          * @throws UnsupportedOperationException if called on a subheading that has a parent builder
@@ -1,7 +1,7 @@
 package com.digitalreasoning.rstwriter;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 import com.digitalreasoning.rstwriter.bodyelement.LinkDefinition;
 import com.digitalreasoning.rstwriter.bodyelement.SubstitutionDefinition;
@@ -27,21 +27,63 @@ import com.digitalreasoning.rstwriter.bodyelement.SubstitutionDefinition;
  *
  * Direct instantiation of the Inline class isn't allowed, but the static methods cover the possible uses of inline markup.
  * Roles can also be used through the Inline class. See the {@code role} function for more information.
+ *
+ * Inline objects are small immutable trees that are only rendered when they are written. Plain text, markup, and the
+ * {@code sequence}, {@code role} and {@code link} compositions of other Inlines can be combined without building the
+ * intermediate Strings, and {@link #length()} measures the rendered text without rendering it. Since reStructuredText
+ * doesn't nest inline markup, markup composed inside another is shown as its text, escaped as needed.
  */
-public class Inline {
-    private String text;
+public abstract class Inline {
+    private static final Escaper ASTERISKS = Escaper.getBuilder('\\').addChars("*").build();
+    private static final Escaper DOUBLED_ASTERISKS = Escaper.getBuilder('\\').addDoubledChars("*").build();
+    private static final Escaper DOUBLED_BACKQUOTES = Escaper.getBuilder('\\').addDoubledChars("`").build();
+    private static final Escaper BACKQUOTES = Escaper.getBuilder('\\').addChars("`").build();
+    private static final Escaper BARS = Escaper.getBuilder('\\').addChars("|").build();
+
+    //what the rendered text starts or ends with, used to separate adjacent Inlines of a sequence
+    private static final int EMPTY = 0;
+    private static final int SPACE = 1;
+    private static final int TEXT = 2;
+    private static final int MARKUP = 3;
 
-    private Inline(String text){
-        this.text = text;
+    private Inline(){
     }
 
+    /**
+     * Renders this Inline
+     * @return the marked-up text
+     */
     public String write(){
-        return text;
+        StringBuilder builder = new StringBuilder(length());
+        try{
+            writeTo(builder);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
     }
 
+    /**
+     * Renders this Inline to the parameter sink
+     * @param out the sink the marked-up text is appended to
+     * @throws IOException if the sink throws an IOException
+     */
+    public abstract void writeTo(Appendable out) throws IOException;
+
+    /**
+     * Returns the length of the marked-up text, without rendering it
+     * @return the number of chars {@link #write()} returns
+     */
+    public abstract int length();
+
+    abstract int edge(boolean end);
+
+    //writes the text shown by this Inline without its markup or escapes, for a literal where escapes aren't processed
+    abstract void writeSource(Appendable out) throws IOException;
+
     @Override
     public String toString(){
-        return text;
+        return write();
     }
 
     /**
@@ -50,7 +92,7 @@ public class Inline {
      * @return the parameter with any *'s and `'s appropriately escaped
      */
     public static String escapeRst(String str){
-        return str.replaceAll(Pattern.quote("*"), Matcher.quoteReplacement("\\*")).replaceAll(Pattern.quote("`"), Matcher.quoteReplacement("\\`"));
+        return Escaper.RST.escape(str);
     }
 
     /**
@@ -60,7 +102,7 @@ public class Inline {
      * @return an Inline object representing the marked-up/escaped String
      */
     public static Inline italics(String str){
-        return new Inline("*" + str.replaceAll(Pattern.quote("*"), Matcher.quoteReplacement("\\*")) + "*");
+        return markup("*", ASTERISKS, str, "*");
     }
 
     /**
@@ -70,7 +112,7 @@ public class Inline {
      * @return an Inline object representing the marked-up/escaped String
      */
     public static Inline bold(String str){
-        return new Inline("**" + str.replaceAll(Pattern.quote("**"), Matcher.quoteReplacement("\\**")) + "**");
+        return markup("**", DOUBLED_ASTERISKS, str, "**");
     }
 
     /**
@@ -80,7 +122,7 @@ public class Inline {
      * @return an Inline object representing the marked-up/escaped String
      */
     public static Inline literal(String str){
-        return new Inline("``" + str.replaceAll("``", Matcher.quoteReplacement("\\``")) + "``");
+        return markup("``", DOUBLED_BACKQUOTES, str, "``");
     }
 
     /**
@@ -92,7 +134,7 @@ public class Inline {
      * @see LinkDefinition
      */
     public static Inline link(String name){
-        return new Inline("`" + name.replaceAll("`", Matcher.quoteReplacement("\\`")) + "`_");
+        return markup("`", BACKQUOTES, name, "`_");
     }
 
     /**
@@ -104,7 +146,7 @@ public class Inline {
      * @return an Inline object representing the marked-up/escaped String
      */
     public static Inline link(String name, String url){
-        return new Inline("`" + name.replaceAll("`", Matcher.quoteReplacement("\\`")) + " <" + url + ">`_");
+        return markup("`", BACKQUOTES, name, " <" + url + ">`_");
     }
 
     /**
@@ -120,7 +162,7 @@ public class Inline {
      */
     public static Inline link(String name, String url, Heading.Builder builder){
         builder.addDefinition(new LinkDefinition(name, url));
-        return new Inline("`" + name.replaceAll("`", Matcher.quoteReplacement("\\`")) + "`_");
+        return markup("`", BACKQUOTES, name, "`_");
     }
 
     /**
@@ -136,7 +178,7 @@ public class Inline {
      */
     public static Inline link(String name, String url, RstFile.Builder builder){
         builder.addDefinition(new LinkDefinition(name, url));
-        return new Inline("`" + name.replaceAll("`", Matcher.quoteReplacement("\\`")) + "`_");
+        return markup("`", BACKQUOTES, name, "`_");
     }
 
     /**
@@ -147,7 +189,7 @@ public class Inline {
      * @see SubstitutionDefinition
      */
     public static Inline substitution(String str){
-        return new Inline("|" + str.replaceAll(Pattern.quote("|"), Matcher.quoteReplacement("\\|")) + "|");
+        return markup("|", BARS, str, "|");
     }
 
     /**
@@ -211,7 +253,352 @@ public class Inline {
      * @see <a href="http://docutils.sourceforge.net/docs/ref/rst/roles.html"></a>
      */
     public static Inline role(String role, String str){
-        return new Inline(":" + role + ":`" + str.replaceAll("`", Matcher.quoteReplacement("\\`")) + "`");
+        return markup(":" + role + ":`", BACKQUOTES, str, "`");
+    }
+
+    /**
+     * Marks the parameter String as plain text, escaping it like {@link #escapeRst(String)}. Plain text is useful in a
+     * {@code sequence} of Inlines.
+     * @param str the text
+     * @return an Inline object representing the escaped String
+     */
+    public static Inline text(String str){
+        return markup("", Escaper.RST, str, "");
+    }
+
+    /**
+     * Joins the parameter Inlines into one. Adjacent Inlines are separated by an escaped space (a backslash and a space)
+     * where markup would otherwise touch other text, as happens with {@code $I} in processed text; plain text parts are
+     * joined as they are.
+     * {@code Inline.sequence(Inline.bold("Build"), Inline.text(" failed on "), Inline.literal("node-1"))}
+     * produces: "**Build** failed on ``node-1``"
+     * @param parts the Inlines to join, in order
+     * @return an Inline object representing the joined Inlines
+     */
+    public static Inline sequence(Inline... parts){
+        return new Sequence(parts.clone());
+    }
+
+    /**
+     * Surrounds the rendered parameter Inline with *'s, escaping it if necessary
+     * @param content the Inline to be marked up
+     * @return an Inline object representing the marked-up/escaped Inline
+     * @see #italics(String)
+     */
+    public static Inline italics(Inline content){
+        return new Wrap("*", ASTERISKS, content, "*");
+    }
+
+    /**
+     * Surrounds the rendered parameter Inline with **'s, escaping it if necessary
+     * @param content the Inline to be marked up
+     * @return an Inline object representing the marked-up/escaped Inline
+     * @see #bold(String)
+     */
+    public static Inline bold(Inline content){
+        return new Wrap("**", DOUBLED_ASTERISKS, content, "**");
+    }
+
+    /**
+     * Surrounds the text of the parameter Inline with ``s, escaping it if necessary. Since backslashes aren't escapes
+     * in a literal, the text is taken without its markup and escapes: {@code literal(text(str))} is the same as
+     * {@code literal(str)}, and {@code literal(sequence(text("a "), bold("b")))} renders as {@code ``a b``}.
+     * @param content the Inline to be marked up
+     * @return an Inline object representing the marked-up/escaped Inline
+     * @see #literal(String)
+     */
+    public static Inline literal(Inline content){
+        return new Wrap("``", DOUBLED_BACKQUOTES, content, "``", true);
+    }
+
+    /**
+     * Makes a link whose name is the rendered parameter Inline, escaping it if necessary
+     * @param name the name of the link
+     * @return an Inline object representing the marked-up/escaped Inline
+     * @see #link(String)
+     */
+    public static Inline link(Inline name){
+        return new Wrap("`", BACKQUOTES, name, "`_");
+    }
+
+    /**
+     * Makes a link to the parameter destination whose text is the rendered parameter Inline, escaping it if necessary
+     * @param name the name of the link
+     * @param url the destination of the link
+     * @return an Inline object representing the marked-up/escaped Inline
+     * @see #link(String, String)
+     */
+    public static Inline link(Inline name, String url){
+        return new Wrap("`", BACKQUOTES, name, " <" + url + ">`_");
+    }
+
+    /**
+     * Applies the parameter role to the rendered parameter Inline, escaping it if necessary
+     * @param role the name of the role
+     * @param content the Inline to be marked up
+     * @return an Inline object representing the marked-up/escaped Inline
+     * @see #role(String, String)
+     */
+    public static Inline role(String role, Inline content){
+        return new Wrap(":" + role + ":`", BACKQUOTES, content, "`");
     }
 
+    /**
+     * Returns the shared cache of Inline values, which holds up to {@link InlineCache#DEFAULT_MAX_SIZE} values. Inlines
+     * obtained from it are escaped and rendered once per unique value, e.g. {@code Inline.cached().literal(className)}.
+     * @return the shared cache
+     * @see InlineCache
+     */
+    public static InlineCache cached(){
+        return InlineCache.SHARED;
+    }
+
+    //an Inline holding the rendered text of the parameter Inline, for Inlines rendered over and over
+    static Inline rendered(Inline inline){
+        StringBuilder source = new StringBuilder();
+        try{
+            inline.writeSource(source);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return new Rendered(inline.write(), source.toString(), inline.edge(false), inline.edge(true));
+    }
+
+    private static Inline markup(String start, Escaper escaper, String str, String end){
+        return new Markup(start, escaper, str, end);
+    }
+
+    //whether an escaped space goes between Inlines ending and starting with the parameter edges
+    private static boolean separated(int left, int right){
+        return left != EMPTY && left != SPACE && right != SPACE && (left == MARKUP || right == MARKUP);
+    }
+
+    private static int edgeOf(String str, boolean end, int type){
+        if(str.isEmpty()){
+            return EMPTY;
+        }
+        return str.charAt(end ? str.length() - 1 : 0) == ' ' ? SPACE : type;
+    }
+
+    //text escaped between a start and an end, which are written as they are
+    private static final class Markup extends Inline {
+        private final String start;
+        private final Escaper escaper;
+        private final String text;
+        private final String end;
+
+        private Markup(String start, Escaper escaper, String text, String end){
+            this.start = start;
+            this.escaper = escaper;
+            this.text = text;
+            this.end = end;
+        }
+
+        @Override
+        public void writeTo(Appendable out) throws IOException {
+            out.append(start);
+            escaper.escapeTo(text, out);
+            out.append(end);
+        }
+
+        @Override
+        public int length(){
+            return start.length() + escaper.escapedLength(text) + end.length();
+        }
+
+        @Override
+        void writeSource(Appendable out) throws IOException {
+            out.append(text);
+        }
+
+        @Override
+        int edge(boolean atEnd){
+            int edge = edgeOf(atEnd ? end : start, atEnd, MARKUP);
+            if(edge == EMPTY){
+                edge = edgeOf(text, atEnd, TEXT);
+            }
+            if(edge == EMPTY){
+                edge = edgeOf(atEnd ? start : end, atEnd, MARKUP);
+            }
+            return edge;
+        }
+    }
+
+    //another Inline rendered, or only its text, and escaped between a start and an end
+    private static final class Wrap extends Inline {
+        private final String start;
+        private final Escaper escaper;
+        private final Inline content;
+        private final String end;
+        private final boolean source;
+
+        private Wrap(String start, Escaper escaper, Inline content, String end){
+            this(start, escaper, content, end, false);
+        }
+
+        private Wrap(String start, Escaper escaper, Inline content, String end, boolean source){
+            this.start = start;
+            this.escaper = escaper;
+            this.content = content;
+            this.end = end;
+            this.source = source;
+        }
+
+        @Override
+        public void writeTo(Appendable out) throws IOException {
+            out.append(start);
+            Escaper.Escaping escaping = escaper.escaping(out);
+            if(source){
+                content.writeSource(escaping);
+            }
+            else{
+                content.writeTo(escaping);
+            }
+            escaping.finish();
+            out.append(end);
+        }
+
+        @Override
+        void writeSource(Appendable out) throws IOException {
+            content.writeSource(out);
+        }
+
+        @Override
+        public int length(){
+            Counter counter = new Counter();
+            try{
+                writeTo(counter);
+            }catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+            return counter.count;
+        }
+
+        @Override
+        int edge(boolean atEnd){
+            return MARKUP;
+        }
+    }
+
+    private static final class Rendered extends Inline {
+        private final String text;
+        private final String source;
+        private final int first;
+        private final int last;
+
+        private Rendered(String text, String source, int first, int last){
+            this.text = text;
+            this.source = source;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        public String write(){
+            return text;
+        }
+
+        @Override
+        public void writeTo(Appendable out) throws IOException {
+            out.append(text);
+        }
+
+        @Override
+        public int length(){
+            return text.length();
+        }
+
+        @Override
+        void writeSource(Appendable out) throws IOException {
+            out.append(source);
+        }
+
+        @Override
+        int edge(boolean atEnd){
+            return atEnd ? last : first;
+        }
+    }
+
+    private static final class Sequence extends Inline {
+        private final Inline[] parts;
+
+        private Sequence(Inline[] parts){
+            this.parts = parts;
+        }
+
+        @Override
+        public void writeTo(Appendable out) throws IOException {
+            int previous = EMPTY;
+            for(Inline part : parts){
+                int first = part.edge(false);
+                if(first == EMPTY){
+                    continue;
+                }
+                if(separated(previous, first)){
+                    out.append("\\ ");
+                }
+                part.writeTo(out);
+                previous = part.edge(true);
+            }
+        }
+
+        @Override
+        public int length(){
+            int length = 0;
+            int previous = EMPTY;
+            for(Inline part : parts){
+                int first = part.edge(false);
+                if(first == EMPTY){
+                    continue;
+                }
+                if(separated(previous, first)){
+                    length += 2;
+                }
+                length += part.length();
+                previous = part.edge(true);
+            }
+            return length;
+        }
+
+        @Override
+        void writeSource(Appendable out) throws IOException {
+            for(Inline part : parts){
+                part.writeSource(out);
+            }
+        }
+
+        @Override
+        int edge(boolean atEnd){
+            for(int i = 0; i < parts.length; i++){
+                int edge = parts[atEnd ? parts.length - 1 - i : i].edge(atEnd);
+                if(edge != EMPTY){
+                    return edge;
+                }
+            }
+            return EMPTY;
+        }
+    }
+
+    //a sink counting the chars appended to it
+    private static final class Counter implements Appendable {
+        private int count;
+
+        @Override
+        public Appendable append(CharSequence csq){
+            count += csq == null ? 4 : csq.length();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end){
+            count += end - start;
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c){
+            count++;
+            return this;
+        }
+    }
 }
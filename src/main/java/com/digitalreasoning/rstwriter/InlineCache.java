@@ -0,0 +1,260 @@
+package com.digitalreasoning.rstwriter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The InlineCache class interns the Inline values that are created over and over, such as the literal names of the
+ * same few thousand classes throughout an API reference. Each method returns the same Inline as the method of the
+ * same name in {@link Inline}, rendered once and kept for the next call with the same kind of markup and text, so the
+ * text is escaped and allocated once per unique value.
+ *
+ * The cache is bounded: it holds at most its maximum size of values, evicting the least recently used ones. It is
+ * split into independently locked segments chosen by the hash of the value, so that threads using the cache at the same
+ * time rarely wait for each other; values are evicted per segment. Hits and misses are counted, to check that the cache
+ * is large enough for the values repeated. A shared cache is returned by {@link Inline#cached()}; a cache of another
+ * size can be created with the constructor. An InlineCache is thread-safe.
+ */
+public final class InlineCache {
+    /**
+     * The maximum size of the cache returned by {@link Inline#cached()}
+     */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    static final InlineCache SHARED = new InlineCache(DEFAULT_MAX_SIZE);
+
+    private static final int SEGMENTS = 16;
+
+    private static final int LITERAL = 0;
+    private static final int BOLD = 1;
+    private static final int ITALICS = 2;
+    private static final int LINK = 3;
+    private static final int SUBSTITUTION = 4;
+    private static final int ROLE = 5;
+    private static final int TEXT = 6;
+
+    private final int maxSize;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates an empty cache holding at most the given number of values
+     * @param maxSize the maximum number of values
+     * @throws IllegalArgumentException if the maximum size is less than 1
+     */
+    public InlineCache(int maxSize){
+        if(maxSize < 1){
+            throw new IllegalArgumentException("The maximum size must be at least 1");
+        }
+        this.maxSize = maxSize;
+        int count = Math.min(SEGMENTS, maxSize);
+        segments = new Segment[count];
+        for(int i = 0; i < count; i++){
+            segments[i] = new Segment(maxSize / count + (i < maxSize % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns {@link Inline#literal(String)} of the parameter String, from the cache if present
+     * @param str the String to be marked up
+     * @return an Inline object representing the marked-up/escaped String
+     */
+    public Inline literal(String str){
+        return get(new Key(LITERAL, str, null));
+    }
+
+    /**
+     * Returns {@link Inline#bold(String)} of the parameter String, from the cache if present
+     * @param str the String to be marked up
+     * @return an Inline object representing the marked-up/escaped String
+     */
+    public Inline bold(String str){
+        return get(new Key(BOLD, str, null));
+    }
+
+    /**
+     * Returns {@link Inline#italics(String)} of the parameter String, from the cache if present
+     * @param str the String to be marked up
+     * @return an Inline object representing the marked-up/escaped String
+     */
+    public Inline italics(String str){
+        return get(new Key(ITALICS, str, null));
+    }
+
+    /**
+     * Returns {@link Inline#link(String)} of the parameter name, from the cache if present
+     * @param name the name of the link
+     * @return an Inline object representing the marked-up/escaped String
+     */
+    public Inline link(String name){
+        return get(new Key(LINK, name, null));
+    }
+
+    /**
+     * Returns {@link Inline#link(String, String)} of the parameter name and destination, from the cache if present
+     * @param name the name of the link
+     * @param url the destination of the link
+     * @return an Inline object representing the marked-up/escaped String
+     */
+    public Inline link(String name, String url){
+        return get(new Key(LINK, name, url));
+    }
+
+    /**
+     * Returns {@link Inline#substitution(String)} of the parameter String, from the cache if present
+     * @param str the String to be marked up
+     * @return an Inline object representing the marked-up/escaped String
+     */
+    public Inline substitution(String str){
+        return get(new Key(SUBSTITUTION, str, null));
+    }
+
+    /**
+     * Returns {@link Inline#role(String, String)} of the parameter role and String, from the cache if present
+     * @param role the name of the role
+     * @param str the String to be marked up
+     * @return an Inline object representing the marked-up/escaped String
+     */
+    public Inline role(String role, String str){
+        return get(new Key(ROLE, str, role));
+    }
+
+    /**
+     * Returns {@link Inline#text(String)} of the parameter String, from the cache if present
+     * @param str the text
+     * @return an Inline object representing the escaped String
+     */
+    public Inline text(String str){
+        return get(new Key(TEXT, str, null));
+    }
+
+    /**
+     * Returns the number of lookups that found their value in the cache
+     * @return the number of hits
+     */
+    public long getHits(){
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that had to create their value
+     * @return the number of misses
+     */
+    public long getMisses(){
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of values in the cache
+     * @return the size of the cache
+     */
+    public int size(){
+        int size = 0;
+        for(Segment segment : segments){
+            synchronized(segment){
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of values in the cache
+     * @return the maximum size of the cache
+     */
+    public int getMaxSize(){
+        return maxSize;
+    }
+
+    /**
+     * Removes every value from the cache and resets the statistics
+     */
+    public void clear(){
+        for(Segment segment : segments){
+            synchronized(segment){
+                segment.clear();
+            }
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    private Inline get(Key key){
+        int hash = key.hashCode();
+        Segment segment = segments[((hash ^ (hash >>> 16)) & 0x7FFFFFFF) % segments.length];
+        synchronized(segment){
+            Inline inline = segment.get(key);
+            if(inline != null){
+                hits.increment();
+                return inline;
+            }
+            misses.increment();
+            inline = Inline.rendered(create(key));
+            segment.put(key, inline);
+            return inline;
+        }
+    }
+
+    private static Inline create(Key key){
+        switch(key.kind){
+            case LITERAL: return Inline.literal(key.text);
+            case BOLD: return Inline.bold(key.text);
+            case ITALICS: return Inline.italics(key.text);
+            case LINK: return key.other == null ? Inline.link(key.text) : Inline.link(key.text, key.other);
+            case SUBSTITUTION: return Inline.substitution(key.text);
+            case ROLE: return Inline.role(key.other, key.text);
+            default: return Inline.text(key.text);
+        }
+    }
+
+    //a least recently used map of a part of the values
+    private static final class Segment extends LinkedHashMap<Key, Inline> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        private Segment(int maxSize){
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Inline> eldest){
+            return size() > maxSize;
+        }
+    }
+
+    private static final class Key {
+        private final int kind;
+        private final String text;
+        /**
+         * the destination of a link or the name of a role, or null
+         */
+        private final String other;
+        private final int hash;
+
+        private Key(int kind, String text, String other){
+            this.kind = kind;
+            this.text = text;
+            this.other = other;
+            this.hash = (31 * kind + text.hashCode()) * 31 + (other == null ? 0 : other.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(!(o instanceof Key)){
+                return false;
+            }
+            Key key = (Key) o;
+            return kind == key.kind && text.equals(key.text)
+                    && (other == null ? key.other == null : other.equals(key.other));
+        }
+
+        @Override
+        public int hashCode(){
+            return hash;
+        }
+    }
+}
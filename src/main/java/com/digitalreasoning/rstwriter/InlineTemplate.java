@@ -0,0 +1,127 @@
+package com.digitalreasoning.rstwriter;
+
+import com.digitalreasoning.rstwriter.bodyelement.Utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The InlineTemplate class is text with inline markup escapes (see {@link Inline}) that is parsed once and filled in
+ * with Inline arguments any number of times. A pattern such as {@code "$I failed on host $I"} used for many elements
+ * is compiled into the runs of text between its {@code $I} escapes, with {@code $$} already replaced and the escaped
+ * spaces around each Inline already added, so filling it in only appends the runs and the Inlines.
+ *
+ * A template is accepted wherever text is processed for inline markup with Inline arguments: Paragraphs, table cells
+ * and list items. Filling in a template gives exactly the text the same pattern and Inlines would give. An
+ * InlineTemplate is immutable and thread-safe.
+ */
+public final class InlineTemplate {
+    private final String pattern;
+    /**
+     * the text before, between and after the Inline arguments; one more than the number of arguments
+     */
+    private final String[] runs;
+    private final int length;
+
+    private InlineTemplate(String pattern, String[] runs){
+        this.pattern = pattern;
+        this.runs = runs;
+        int length = 0;
+        for(String run : runs){
+            length += run.length();
+        }
+        this.length = length;
+    }
+
+    /**
+     * Parses the parameter pattern into a template
+     * @param pattern text with inline markup escapes: {@code $I} for an Inline argument and {@code $$} for '$'
+     * @return the compiled template
+     * @throws IllegalArgumentException if the pattern has an unknown or unfinished escape
+     */
+    public static InlineTemplate compile(String pattern){
+        List<String> runs = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        try{
+            //each $I ends a run; the scan appends the escaped spaces around it to the runs on either side
+            Utils.inlineScan(pattern, run, index -> {
+                runs.add(run.toString());
+                run.setLength(0);
+            });
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        runs.add(run.toString());
+        return new InlineTemplate(pattern, runs.toArray(new String[runs.size()]));
+    }
+
+    /**
+     * Returns the number of Inline arguments the template takes, which is the number of {@code $I} in its pattern
+     * @return the number of arguments
+     */
+    public int getArgumentCount(){
+        return runs.length - 1;
+    }
+
+    /**
+     * Fills in the template with the parameter Inlines
+     * @param inlines the Inline arguments, one per {@code $I} in the pattern
+     * @return the processed text
+     * @throws IllegalArgumentException if the number of Inlines doesn't match the number of {@code $I}
+     */
+    public String format(Inline... inlines){
+        checkArguments(inlines);
+        if(runs.length == 1){
+            return runs[0];
+        }
+        StringBuilder builder = new StringBuilder(length + 16 * inlines.length);
+        try{
+            append(builder, inlines);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Fills in the template with the parameter Inlines, appending the text to the parameter sink. The number of
+     * Inlines is checked before anything is appended.
+     * @param out the sink the processed text is appended to
+     * @param inlines the Inline arguments, one per {@code $I} in the pattern
+     * @throws IOException if the sink throws an IOException
+     * @throws IllegalArgumentException if the number of Inlines doesn't match the number of {@code $I}
+     */
+    public void writeTo(Appendable out, Inline... inlines) throws IOException {
+        checkArguments(inlines);
+        append(out, inlines);
+    }
+
+    private void checkArguments(Inline... inlines){
+        int given = inlines == null ? 0 : inlines.length;
+        if(given < runs.length - 1){
+            throw new IllegalArgumentException("Too few Inline arguments given");
+        }
+        if(given > runs.length - 1){
+            throw new IllegalArgumentException("Too many inline arguments given");
+        }
+    }
+
+    private void append(Appendable out, Inline... inlines) throws IOException {
+        out.append(runs[0]);
+        for(int i = 1; i < runs.length; i++){
+            inlines[i - 1].writeTo(out);
+            out.append(runs[i]);
+        }
+    }
+
+    /**
+     * Returns the pattern the template was compiled from
+     * @return the pattern of the template
+     */
+    @Override
+    public String toString(){
+        return pattern;
+    }
+}
@@ -0,0 +1,117 @@
+package com.digitalreasoning.rstwriter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * A NamingStrategy decides where the .rst file of an RstFile goes, relative to the directory a document set is written
+ * to. It maps a title to a relative path whose parts are separated by '/'; the same title must always map to the same
+ * path. Two titles may map to the same path: a {@link FileManifest} resolves such collisions by adding a suffix.
+ *
+ * The strategies provided here can be combined: {@code NamingStrategy.sharded(NamingStrategy.sanitized(), 2)} names
+ * files after their sanitized titles, in two levels of subdirectories chosen by a hash of the title. Implementations
+ * must be thread-safe.
+ */
+public interface NamingStrategy {
+    /**
+     * Returns the path of the file with the given title, relative to the directory of the document set
+     * @param title the title of the RstFile
+     * @return the relative path of its file, with parts separated by '/'
+     */
+    String pathOf(String title);
+
+    /**
+     * Returns the strategy of {@link FileWriter#writeTo(java.io.File)}: the file is named {@code <title>.rst}, whatever
+     * the title contains
+     * @return a strategy naming files after their titles
+     */
+    static NamingStrategy titles(){
+        return title -> title + ".rst";
+    }
+
+    /**
+     * Returns a strategy naming each file after its title, with the characters that aren't safe in a file name on
+     * common file systems replaced by '_'. Separators, control characters and the characters Windows reserves are
+     * replaced, as are a leading '.', trailing dots and spaces, and names reserved by Windows such as {@code CON}. Long
+     * titles are truncated to keep the name within 200 UTF-8 bytes.
+     * @return a strategy naming files after their sanitized titles
+     */
+    static NamingStrategy sanitized(){
+        return title -> sanitize(title) + ".rst";
+    }
+
+    /**
+     * Returns a strategy placing the files of the parameter strategy in subdirectories, so no directory holds too many
+     * entries. Each level of subdirectory is named by two hex digits of the SHA-256 digest of the title, which spreads
+     * files evenly over 256 directories per level and gives the same directories to the same title on every run.
+     * @param strategy the strategy naming the files within their subdirectory
+     * @param levels the number of levels of subdirectories, from 1 to 8
+     * @return a strategy sharding files into subdirectories
+     * @throws IllegalArgumentException if the number of levels isn't between 1 and 8
+     */
+    static NamingStrategy sharded(NamingStrategy strategy, int levels){
+        if(levels < 1 || levels > 8){
+            throw new IllegalArgumentException("The number of levels must be between 1 and 8");
+        }
+        return title -> {
+            byte[] digest;
+            try{
+                digest = MessageDigest.getInstance("SHA-256").digest(title.getBytes(StandardCharsets.UTF_8));
+            }catch(NoSuchAlgorithmException e){
+                throw new IllegalStateException("SHA-256 isn't available", e);
+            }
+            StringBuilder path = new StringBuilder();
+            for(int i = 0; i < levels; i++){
+                path.append(Character.forDigit((digest[i] >> 4) & 0xF, 16))
+                        .append(Character.forDigit(digest[i] & 0xF, 16))
+                        .append('/');
+            }
+            return path.append(strategy.pathOf(title)).toString();
+        };
+    }
+
+    /**
+     * Replaces the characters of the parameter title that aren't safe in a file name; see {@link #sanitized()}
+     * @param title the title to be sanitized
+     * @return a file name without extension
+     */
+    static String sanitize(String title){
+        StringBuilder name = new StringBuilder(title.length());
+        int bytes = 0;
+        for(int i = 0; i < title.length(); ){
+            int c = title.codePointAt(i);
+            int length = c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4;
+            if(bytes + length > 200){
+                break;
+            }
+            bytes += length;
+            if(c < 0x20 || c == 0x7F || "/\\:*?\"<>|".indexOf(c) >= 0
+                    || (c <= 0xFFFF && Character.isSurrogate((char) c))){
+                name.append('_');
+            }
+            else{
+                name.appendCodePoint(c);
+            }
+            i += Character.charCount(c);
+        }
+        if(name.length() > 0 && name.charAt(0) == '.'){
+            name.setCharAt(0, '_');
+        }
+        int end = name.length();
+        while(end > 0 && (name.charAt(end - 1) == '.' || name.charAt(end - 1) == ' ')){
+            name.setCharAt(--end, '_');
+        }
+        if(name.length() == 0){
+            return "_";
+        }
+        String base = name.toString();
+        int dot = base.indexOf('.');
+        String stem = (dot == -1 ? base : base.substring(0, dot)).toUpperCase(Locale.ROOT);
+        if(stem.matches("CON|PRN|AUX|NUL|COM[1-9]|LPT[1-9]")){
+            return "_" + base;
+        }
+        return base;
+    }
+}
@@ -0,0 +1,18 @@
+package com.digitalreasoning.rstwriter;
+
+import java.util.List;
+
+/**
+ * A ProgressListener is told how far the rendering of a document has got each time a {@link ChunkedWriter} flushes
+ * its output.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    /**
+     * Called after the output was flushed
+     * @param bytesWritten the number of bytes written to the stream so far
+     * @param headingPath the titles of the headings being rendered, outermost first; empty between top-level headings
+     *                    and once the document is complete
+     */
+    void progress(long bytesWritten, List<String> headingPath);
+}
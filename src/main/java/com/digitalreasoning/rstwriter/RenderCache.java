@@ -0,0 +1,191 @@
+package com.digitalreasoning.rstwriter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The RenderCache class memoizes the reStructuredText of Headings that are reused across many documents, such as
+ * boilerplate sections or glossary chapters. Built Headings are immutable, so their text only depends on the depth they
+ * are written at; entries are keyed by the Heading's content (by identity) and that depth. A Heading reached from a
+ * Heading that isn't cached is looked up as well, so shared content nested anywhere in a document benefits.
+ *
+ * A Heading is only cached the second time it is rendered: the first time, the cache just remembers that it was seen.
+ * The Headings written once, such as the chapters of a single file, never take an entry and push the reused ones out,
+ * and the subheadings of a Heading are only cached next to it when they are reused on their own.
+ *
+ * The cache is bounded both by a number of entries and by the total number of cached chars. When either bound is
+ * exceeded, the least recently used entries are evicted. A single instance can be shared by any number of threads; pass
+ * it to {@link RstFile#write(RenderCache)} or {@link Heading#write(RenderCache)} (or their {@code writeTo} variants).
+ */
+public final class RenderCache {
+    private final int maxEntries;
+    private final long maxChars;
+    private final LinkedHashMap<Key, String> entries;
+    /**
+     * the Headings rendered once and not cached, at most maxEntries of them, the least recently seen first
+     */
+    private final LinkedHashMap<Key, Boolean> seen;
+    private long chars;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache holding at most {@code maxEntries} rendered Headings, whatever their size
+     * @param maxEntries the maximum number of cached Headings
+     */
+    public RenderCache(int maxEntries){
+        this(maxEntries, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a cache holding at most {@code maxEntries} rendered Headings and at most {@code maxChars} chars of text.
+     * Headings whose text alone is longer than {@code maxChars} are rendered but never cached.
+     * @param maxEntries the maximum number of cached Headings
+     * @param maxChars the maximum total length of the cached text
+     * @throws IllegalArgumentException if either bound isn't positive
+     */
+    public RenderCache(int maxEntries, long maxChars){
+        if(maxEntries <= 0 || maxChars <= 0){
+            throw new IllegalArgumentException("Cache bounds must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.seen = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the text of the parameter content at the parameter depth, rendering it on a miss and caching it if it was
+     * seen before. Rendering happens outside the lock, so two threads missing on the same entry may both render it.
+     */
+    String get(ContentBase content, int depth){
+        Key key = new Key(content, depth);
+        String text;
+        boolean seenBefore;
+        synchronized(this){
+            text = entries.get(key);
+            seenBefore = text == null && see(key);
+        }
+        if(text != null){
+            hits.increment();
+            return text;
+        }
+        misses.increment();
+        text = content.write(depth, this);
+        if(seenBefore && text.length() <= maxChars){
+            put(key, text);
+        }
+        return text;
+    }
+
+    //remembers that the key was rendered, returning whether it already was
+    private boolean see(Key key){
+        if(seen.remove(key) != null){
+            return true;
+        }
+        seen.put(key, Boolean.TRUE);
+        if(seen.size() > maxEntries){
+            Iterator<Key> eldest = seen.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+        return false;
+    }
+
+    private synchronized void put(Key key, String text){
+        seen.remove(key);
+        String previous = entries.put(key, text);
+        if(previous != null){
+            chars -= previous.length();
+        }
+        chars += text.length();
+        Iterator<Map.Entry<Key, String>> eldest = entries.entrySet().iterator();
+        while(entries.size() > maxEntries || chars > maxChars){
+            chars -= eldest.next().getValue().length();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Returns the number of lookups that were answered from the cache
+     * @return the number of cache hits
+     */
+    public long getHits(){
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that had to render the Heading
+     * @return the number of cache misses
+     */
+    public long getMisses(){
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entries removed to keep the cache within its bounds
+     * @return the number of evictions
+     */
+    public long getEvictions(){
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of Headings currently cached
+     * @return the number of cached entries
+     */
+    public synchronized int size(){
+        return entries.size();
+    }
+
+    /**
+     * Returns the total length of the currently cached text
+     * @return the number of cached chars
+     */
+    public synchronized long getCachedChars(){
+        return chars;
+    }
+
+    /**
+     * Removes all entries, and forgets the Headings seen once. The hit, miss and eviction counters are kept.
+     */
+    public synchronized void clear(){
+        entries.clear();
+        seen.clear();
+        chars = 0;
+    }
+
+    @Override
+    public String toString(){
+        return "RenderCache[entries=" + size() + ", chars=" + getCachedChars() + ", hits=" + getHits() + ", misses="
+                + getMisses() + ", evictions=" + getEvictions() + "]";
+    }
+
+    private static final class Key {
+        private final ContentBase content;
+        private final int depth;
+
+        private Key(ContentBase content, int depth){
+            this.content = content;
+            this.depth = depth;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(!(o instanceof Key)){
+                return false;
+            }
+            Key other = (Key) o;
+            return content == other.content && depth == other.depth;
+        }
+
+        @Override
+        public int hashCode(){
+            return System.identityHashCode(content) * 31 + depth;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.digitalreasoning.rstwriter;
+
+import com.digitalreasoning.rstwriter.bodyelement.IndentingAppendable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The RenderContext class holds the buffers used to render documents, so that code rendering many small RstFiles can
+ * reuse them instead of allocating new ones for every document: a char buffer for Strings, a UTF-8 staging buffer for
+ * bytes, and the indenting sink with its prefix stack that nested body elements render through. Once the buffers have
+ * grown to the size of the documents, what a render allocates is mostly the output itself and the little garbage the
+ * elements create while rendering.
+ *
+ * A RenderContext is passed explicitly to the {@code write} and {@code writeTo} methods of {@link RstFile} and
+ * {@link Heading}. It is not thread-safe and can't be used by a second render before the first one returns; use one
+ * context per thread, for instance the one returned by {@link #current()}.
+ */
+public final class RenderContext {
+    /**
+     * Buffers that grew beyond this many chars while rendering a very large document are dropped afterward rather than
+     * retained for the next document
+     */
+    private static final int MAX_RETAINED_CHARS = 1 << 20;
+    private static final int INITIAL_CHARS = 4096;
+    private static final ThreadLocal<RenderContext> CURRENT = ThreadLocal.withInitial(RenderContext::new);
+
+    private StringBuilder chars = new StringBuilder(INITIAL_CHARS);
+    private final Utf8Output bytes = new Utf8Output((OutputStream) null);
+    /**
+     * the sink every document is rendered through, so nested elements share its prefix stack instead of creating one
+     */
+    private final IndentingAppendable indented = IndentingAppendable.of(null);
+    private boolean inUse;
+
+    /**
+     * Creates a RenderContext with empty buffers, which grow as documents are rendered with it
+     */
+    public RenderContext(){
+    }
+
+    /**
+     * Returns the RenderContext owned by the calling thread, creating it on first use
+     * @return the calling thread's RenderContext
+     */
+    public static RenderContext current(){
+        return CURRENT.get();
+    }
+
+    String write(ContentBase content){
+        acquire();
+        try{
+            chars.setLength(0);
+            content.writeTo(indented.reset(chars));
+            return chars.toString();
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }finally{
+            indented.reset(null);
+            if(chars.capacity() > MAX_RETAINED_CHARS){
+                chars = new StringBuilder(INITIAL_CHARS);
+            }
+            inUse = false;
+        }
+    }
+
+    long writeTo(ContentBase content, OutputStream out) throws IOException {
+        acquire();
+        try{
+            bytes.reset(out);
+            content.writeTo(indented.reset(bytes));
+            return bytes.finish();
+        }finally{
+            indented.reset(null);
+            bytes.reset((OutputStream) null);
+            inUse = false;
+        }
+    }
+
+    int writeTo(ContentBase content, ByteBuffer buffer){
+        acquire();
+        try{
+            bytes.reset(buffer);
+            content.writeTo(indented.reset(bytes));
+            return (int) bytes.finish();
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }finally{
+            indented.reset(null);
+            bytes.reset((OutputStream) null);
+            inUse = false;
+        }
+    }
+
+    private void acquire(){
+        if(inUse){
+            throw new IllegalStateException("This RenderContext is already rendering a document");
+        }
+        inUse = true;
+    }
+}
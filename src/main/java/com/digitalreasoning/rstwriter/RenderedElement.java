@@ -0,0 +1,30 @@
+package com.digitalreasoning.rstwriter;
+
+import java.io.IOException;
+
+/**
+ * The RenderedElement class is the frozen form of a body element that doesn't know how to copy itself, such as a
+ * custom {@link Directive}. The element is rendered once when it is frozen and the resulting text is kept.
+ */
+final class RenderedElement implements RstBodyElement {
+    private final String text;
+
+    RenderedElement(String text){
+        this.text = text;
+    }
+
+    @Override
+    public String write(){
+        return text;
+    }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        out.append(text);
+    }
+
+    @Override
+    public RstBodyElement freeze(){
+        return this;
+    }
+}
@@ -0,0 +1,141 @@
+package com.digitalreasoning.rstwriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The RenderedLength class holds the exact size of the reStructuredText generated by an {@link RstFile}, {@link Heading}
+ * or {@link RstBodyElement}, both in chars and in UTF-8 encoded bytes. The size is measured by running the full
+ * {@code writeTo} render into a sink that only counts, so it always agrees with {@code write()} and the text is never
+ * held in memory, but measuring costs as much as rendering. A sink can use it to preallocate a buffer or a file, or to
+ * announce the content length up front.
+ */
+public final class RenderedLength {
+    private final long chars;
+    private final long utf8Bytes;
+
+    private RenderedLength(long chars, long utf8Bytes){
+        this.chars = chars;
+        this.utf8Bytes = utf8Bytes;
+    }
+
+    /**
+     * Measures the reStructuredText generated by the parameter file
+     * @param file the file to be measured
+     * @return the rendered length of the file
+     */
+    public static RenderedLength of(RstFile file){
+        Counter counter = new Counter();
+        try{
+            file.writeTo(counter);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return counter.toLength();
+    }
+
+    /**
+     * Measures the reStructuredText generated by the parameter element
+     * @param element the Heading, Transition or body element to be measured
+     * @return the rendered length of the element
+     */
+    static RenderedLength of(RstElement element){
+        Counter counter = new Counter();
+        try{
+            element.writeTo(counter);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return counter.toLength();
+    }
+
+    /**
+     * Measures the reStructuredText generated by the parameter body element
+     * @param element the body element to be measured
+     * @return the rendered length of the element
+     */
+    public static RenderedLength of(RstBodyElement element){
+        return of((RstElement) element);
+    }
+
+    /**
+     * Returns the number of chars in the rendered text, which is the length of the String returned by {@code write()}
+     * @return the number of chars
+     */
+    public long getChars(){
+        return chars;
+    }
+
+    /**
+     * Returns the number of bytes in the UTF-8 encoding of the rendered text
+     * @return the number of UTF-8 bytes
+     */
+    public long getUtf8Bytes(){
+        return utf8Bytes;
+    }
+
+    @Override
+    public String toString(){
+        return chars + " chars, " + utf8Bytes + " UTF-8 bytes";
+    }
+
+    //counts chars and the bytes they encode to, the way String.getBytes(UTF_8) does. Unpaired surrogates are replaced
+    //by a single byte in that encoding
+    private static final class Counter implements Appendable {
+        private long chars;
+        private long bytes;
+        private boolean highSurrogate;
+
+        @Override
+        public Appendable append(CharSequence csq){
+            if(csq == null){
+                return append("null");
+            }
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end){
+            if(csq == null){
+                return append("null", start, end);
+            }
+            for(int i = start; i < end; i++){
+                append(csq.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c){
+            chars++;
+            if(highSurrogate){
+                highSurrogate = false;
+                if(Character.isLowSurrogate(c)){
+                    bytes += 3; //4 bytes for the pair, one of which was counted for the high surrogate
+                    return this;
+                }
+            }
+            if(c < 0x80){
+                bytes++;
+            }
+            else if(c < 0x800){
+                bytes += 2;
+            }
+            else if(Character.isHighSurrogate(c)){
+                highSurrogate = true;
+                bytes++;
+            }
+            else if(Character.isLowSurrogate(c)){
+                bytes++;
+            }
+            else{
+                bytes += 3;
+            }
+            return this;
+        }
+
+        private RenderedLength toLength(){
+            return new RenderedLength(chars, bytes);
+        }
+    }
+}
@@ -9,6 +9,35 @@ import com.digitalreasoning.rstwriter.bodyelement.*;
  */
 public interface RstBodyElement extends RstElement{
 
+    /**
+     * Returns a frozen copy of this element: an element that renders exactly like this one does now, and that doesn't
+     * see any later modifications of this element. Builders freeze the elements added to them, so the content of a built
+     * RstFile or Heading is never re-rendered into a String snapshot; it is rendered only when it is written. The
+     * library's elements share their content with the frozen copy instead of rendering it. The default implementation,
+     * used by custom elements, renders this element once and keeps the text.
+     * @return a copy of this element with its current content
+     */
+    default RstBodyElement freeze(){
+        return new RenderedElement(write());
+    }
+
+    /**
+     * Returns whether this element writes one or more new lines and nothing else, the way an element without any text
+     * does. Lists leave such elements out instead of giving them an empty item. The default implementation, used by
+     * custom elements, renders this element to find out; the library's elements answer from the content they hold,
+     * without rendering the elements nested in them.
+     * @return true if the element writes only new lines
+     */
+    default boolean isBlank(){
+        String text = write();
+        for(int i = 0; i < text.length(); i++){
+            if(text.charAt(i) != '\n'){
+                return false;
+            }
+        }
+        return !text.isEmpty();
+    }
+
     /**
      * Returns an empty line block
      * @return empty line block
@@ -1,6 +1,6 @@
 package com.digitalreasoning.rstwriter;
 
-import java.util.Iterator;
+import java.io.IOException;
 
 /**
  * The RstElement interface represents Headings and Transitions, or anything that can't be nested in a body element but can
@@ -15,4 +15,15 @@ interface RstElement {
      * @return the reStructuredText representation of this element
      */
     String write();
+
+    /**
+     * Streams the reStructuredText represented by this element to the given Appendable. The output is identical to
+     * {@code write()}, but implementations append their pieces directly to the sink instead of building a String first.
+     * The default implementation simply appends the result of {@code write()}.
+     * @param out the sink the reStructuredText is appended to
+     * @throws IOException if the sink throws an IOException
+     */
+    default void writeTo(Appendable out) throws IOException {
+        out.append(write());
+    }
 }
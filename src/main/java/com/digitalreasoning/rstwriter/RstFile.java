@@ -2,14 +2,28 @@ package com.digitalreasoning.rstwriter;
 
 import com.digitalreasoning.rstwriter.bodyelement.Paragraph;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Represents a fully constructed (ready to be written) reStructuredText file. Should be used in conjunction with
  * {@link FileWriter} to create the .rst file. An RstFile can contain any body elements(including directives),
  * headings, or transitions. The Builder class is necessary to create an RstFile and an instance of a builder can be
  * obtained by statically calling the {@code builder} method.
+ *
+ * A built RstFile is immutable and thread-safe: it can be written any number of times, from several threads at once,
+ * and the Headings it contains can be shared with other RstFiles.
  */
 public class RstFile {
-    private ContentBase content;
+    /**
+     * The number of elements, counting those of subheadings, grouped into one task when rendering in parallel
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 256;
+
+    private final ContentBase content;
 
     protected RstFile(ContentBase contentBase){
         this.content = contentBase;
@@ -24,6 +38,141 @@ public class RstFile {
        return content.write();
     }
 
+    /**
+     * Streams the content (the final reStructuredText) of this RstFile to the given Appendable without building the
+     * whole document in memory first.
+     * @param out the sink the reStructuredText is appended to
+     * @throws IOException if the sink throws an IOException
+     */
+    public void writeTo(Appendable out) throws IOException {
+        content.writeTo(out);
+    }
+
+    /**
+     * Streams the content of this RstFile to the given OutputStream as UTF-8 encoded bytes. ASCII text is copied
+     * straight to the bytes, without going through a Writer or CharsetEncoder. The stream is neither flushed nor closed.
+     * @param out the stream the encoded reStructuredText is written to
+     * @return the number of bytes written
+     * @throws IOException if the stream throws an IOException
+     */
+    public long writeTo(OutputStream out) throws IOException {
+        return content.writeTo(out);
+    }
+
+    /**
+     * Writes the content of this RstFile into the given ByteBuffer as UTF-8 encoded bytes, starting at its position.
+     * {@code renderedLength().getUtf8Bytes()} tells how much room is needed.
+     * @param buffer the buffer the encoded reStructuredText is put into
+     * @return the number of bytes written
+     * @throws java.nio.BufferOverflowException if the buffer doesn't have enough room
+     */
+    public int writeTo(ByteBuffer buffer){
+        return content.writeTo(buffer);
+    }
+
+    /**
+     * Writes the content of this RstFile to a single String, rendering it in the buffers of the parameter context
+     * @param context the context whose buffers are reused
+     * @return the reStructuredText generated by this RstFile.
+     */
+    public String write(RenderContext context){
+        return context.write(content);
+    }
+
+    /**
+     * Streams the content of this RstFile to the given OutputStream as UTF-8 encoded bytes, staging them in the
+     * buffer of the parameter context. The stream is neither flushed nor closed.
+     * @param out the stream the encoded reStructuredText is written to
+     * @param context the context whose buffers are reused
+     * @return the number of bytes written
+     * @throws IOException if the stream throws an IOException
+     */
+    public long writeTo(OutputStream out, RenderContext context) throws IOException {
+        return context.writeTo(content, out);
+    }
+
+    /**
+     * Writes the content of this RstFile into the given ByteBuffer as UTF-8 encoded bytes, staging them in the
+     * buffer of the parameter context
+     * @param buffer the buffer the encoded reStructuredText is put into
+     * @param context the context whose buffers are reused
+     * @return the number of bytes written
+     * @throws java.nio.BufferOverflowException if the buffer doesn't have enough room
+     */
+    public int writeTo(ByteBuffer buffer, RenderContext context){
+        return context.writeTo(content, buffer);
+    }
+
+    /**
+     * Writes the content of this RstFile to a single String, taking the text of its Headings from the parameter cache
+     * when they were rendered before, in this or any other RstFile.
+     * @param cache the cache holding the text of previously rendered Headings
+     * @return the reStructuredText generated by this RstFile.
+     */
+    public String write(RenderCache cache){
+        StringBuilder builder = new StringBuilder();
+        try{
+            content.writeTo(builder, cache);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Streams the content of this RstFile to the given Appendable, taking the text of its Headings from the parameter
+     * cache when they were rendered before, in this or any other RstFile.
+     * @param out the sink the reStructuredText is appended to
+     * @param cache the cache holding the text of previously rendered Headings
+     * @throws IOException if the sink throws an IOException
+     */
+    public void writeTo(Appendable out, RenderCache cache) throws IOException {
+        content.writeTo(out, cache);
+    }
+
+    /**
+     * Writes the content of this RstFile to a single String, rendering headings concurrently on the parameter pool.
+     * Consecutive headings are grouped into tasks of at least {@link #DEFAULT_PARALLEL_THRESHOLD} elements; smaller
+     * groups are rendered on the thread rendering their parent. The result is identical to {@code write()}.
+     * @param pool the pool rendering the headings
+     * @return the reStructuredText generated by this RstFile.
+     */
+    public String write(ForkJoinPool pool){
+        return write(pool, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Writes the content of this RstFile to a single String, rendering headings concurrently on the parameter pool.
+     * Consecutive headings are grouped into tasks holding at least {@code threshold} elements (counting the elements of
+     * their subheadings). The result is identical to {@code write()}.
+     * @param pool the pool rendering the headings
+     * @param threshold the minimum number of elements rendered by a separate task
+     * @return the reStructuredText generated by this RstFile.
+     */
+    public String write(ForkJoinPool pool, int threshold){
+        return content.write(pool, threshold);
+    }
+
+    /**
+     * Streams the content of this RstFile to the given Appendable, rendering headings concurrently on the parameter
+     * pool. Rendered headings are appended in order as soon as they are complete.
+     * @param out the sink the reStructuredText is appended to
+     * @param pool the pool rendering the headings
+     * @throws IOException if the sink throws an IOException
+     */
+    public void writeTo(Appendable out, ForkJoinPool pool) throws IOException {
+        content.writeTo(out, pool, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Measures the exact size of the reStructuredText generated by this RstFile by rendering it into a sink that only
+     * counts, so the text isn't kept but the rendering work is done in full
+     * @return the rendered length of this RstFile in chars and UTF-8 bytes
+     */
+    public RenderedLength renderedLength(){
+        return RenderedLength.of(this);
+    }
+
     protected ContentBase getContentBase(){
         return content;
     }
@@ -68,6 +217,27 @@ public class RstFile {
             return this;
         }
 
+        /**
+         * Adds a paragraph to the content of this Builder, filling in the template with the {@link Inline} arguments.
+         * @param template The compiled text of the paragraph
+         * @param inlines the Inline arguments of the template
+         * @return this Builder with the paragraph added
+         */
+        public Builder addParagraph(InlineTemplate template, Inline... inlines){
+            contentBase.add(new Paragraph(template, inlines));
+            return this;
+        }
+
+        /**
+         * Adds a paragraph to the content of this Builder, whose text is the parameter {@link Inline}
+         * @param content The text of the paragraph
+         * @return this Builder with the paragraph added
+         */
+        public Builder addParagraph(Inline content){
+            contentBase.add(new Paragraph(content));
+            return this;
+        }
+
         /**
          * Adds a body element to the content of this Builder
          * @param bodyElement the body element to be added (order of additions will be preserved in the RstFile)
@@ -121,7 +291,8 @@ public class RstFile {
 
         /**
          * Builds an RstFile object from the content provided to the Builder and returns it. {@code build} can be called multiple
-         * times, and modifications to the Builder afterward will not be seen in any previous RstFiles.
+         * times, and modifications to the Builder afterward will not be seen in any previous RstFiles. Building takes
+         * constant time, since an RstFile shares its content with the Builder and with earlier RstFiles.
          * @return a fully formed, unmodifiable RstFile
          */
         public RstFile build(){
@@ -0,0 +1,22 @@
+package com.digitalreasoning.rstwriter;
+
+import java.io.IOException;
+
+/**
+ * A SectionSink is an Appendable that wants to know where the text of each Heading starts and ends while a document is
+ * rendered into it. Headings are entered and exited in the order of the document, nested headings within their parent.
+ */
+interface SectionSink extends Appendable {
+    /**
+     * Called before the text of a heading is appended
+     * @param title the title of the heading
+     * @throws IOException if the sink throws an IOException
+     */
+    void enterSection(String title) throws IOException;
+
+    /**
+     * Called after the text of the last entered heading is appended
+     * @throws IOException if the sink throws an IOException
+     */
+    void exitSection() throws IOException;
+}
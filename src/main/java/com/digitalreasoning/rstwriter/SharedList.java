@@ -0,0 +1,66 @@
+package com.digitalreasoning.rstwriter;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The SharedList class is an append-only list whose snapshots share its backing array. A snapshot only ever reads the
+ * slots that were filled when it was taken, and the list it was taken from only writes past them, so taking a snapshot
+ * is O(1) and later appends are never seen by earlier snapshots. Snapshots themselves can't be appended to.
+ *
+ * A SharedList is meant to be appended to by a single builder; its snapshots can be read from any thread.
+ * @param <E> the type of the elements in this list
+ */
+final class SharedList<E> extends AbstractList<E> implements RandomAccess {
+    private Object[] items;
+    private int size;
+    private final boolean snapshot;
+
+    SharedList(){
+        this.items = new Object[8];
+        this.snapshot = false;
+    }
+
+    private SharedList(Object[] items, int size){
+        this.items = items;
+        this.size = size;
+        this.snapshot = true;
+    }
+
+    /**
+     * Adds an element to the end of this list. When the backing array is full it is copied to a larger one; existing
+     * snapshots keep the old array.
+     * @throws UnsupportedOperationException if this list is a snapshot
+     */
+    void append(E element){
+        if(snapshot){
+            throw new UnsupportedOperationException("Snapshots can't be modified");
+        }
+        if(size == items.length){
+            items = Arrays.copyOf(items, size * 2);
+        }
+        items[size++] = element;
+    }
+
+    /**
+     * Returns an unmodifiable view of the elements currently in this list
+     */
+    SharedList<E> snapshot(){
+        return snapshot ? this : new SharedList<>(items, size);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index){
+        if(index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (E) items[index];
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+}
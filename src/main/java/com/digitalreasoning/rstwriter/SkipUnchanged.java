@@ -0,0 +1,85 @@
+package com.digitalreasoning.rstwriter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The SkipUnchanged class is a write mode for {@link FileWriter#writeTo(java.nio.file.Path, java.nio.charset.Charset,
+ * SkipUnchanged)} that leaves files alone when their content wouldn't change, so tools keyed on modification times,
+ * like incremental Sphinx builds, only see the files that really changed. Each file is rendered once into a temporary
+ * file, digesting the bytes as they are written, and the digest is compared with the existing file, either by
+ * digesting the file itself or, with sidecar digests, by reading the digest stored next to it in a {@code .sha256}
+ * file. The temporary file of an unchanged file is deleted, and that of a changed file is atomically moved into place,
+ * so readers never see a partly written file.
+ *
+ * A SkipUnchanged instance counts the files written and skipped; it can be shared by threads writing different files.
+ */
+public final class SkipUnchanged {
+    /**
+     * The extension appended to a file's name to get the name of its sidecar digest file
+     */
+    public static final String SIDECAR_EXTENSION = ".sha256";
+
+    private final boolean sidecarDigests;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    private SkipUnchanged(boolean sidecarDigests){
+        this.sidecarDigests = sidecarDigests;
+    }
+
+    /**
+     * Returns a mode that compares the rendered bytes with the content of the existing file. Nothing but the file
+     * itself is written
+     * @return a new SkipUnchanged mode
+     */
+    public static SkipUnchanged comparingContent(){
+        return new SkipUnchanged(false);
+    }
+
+    /**
+     * Returns a mode that compares the digest of the rendered bytes with the one stored in a sidecar file, written next
+     * to each file along with it. This avoids reading the existing files, but files changed by other means than this
+     * mode are only rewritten once their sidecar file is deleted
+     * @return a new SkipUnchanged mode
+     */
+    public static SkipUnchanged usingSidecarDigests(){
+        return new SkipUnchanged(true);
+    }
+
+    /**
+     * Returns whether this mode keeps digests in sidecar files
+     * @return true if the digests are kept in sidecar files
+     */
+    public boolean usesSidecarDigests(){
+        return sidecarDigests;
+    }
+
+    /**
+     * Returns the number of files written, because they didn't exist or their content changed
+     * @return the number of files written
+     */
+    public long getWritten(){
+        return written.sum();
+    }
+
+    /**
+     * Returns the number of files left alone because their content didn't change
+     * @return the number of files skipped
+     */
+    public long getSkipped(){
+        return skipped.sum();
+    }
+
+    void written(){
+        written.increment();
+    }
+
+    void skipped(){
+        skipped.increment();
+    }
+
+    @Override
+    public String toString(){
+        return "SkipUnchanged[written=" + getWritten() + ", skipped=" + getSkipped() + "]";
+    }
+}
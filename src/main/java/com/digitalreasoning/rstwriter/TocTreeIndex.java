@@ -0,0 +1,285 @@
+package com.digitalreasoning.rstwriter;
+
+import com.digitalreasoning.rstwriter.directive.TocTree;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The TocTreeIndex class builds the index of a document set, a page with a {@link TocTree} of every file, as the files
+ * are written. Files are listed in the order they are added. Without a limit, the index is a single page holding every
+ * file. With a limit of N entries per page, files are gathered into pages of N files, written once they are full,
+ * and those pages into pages of N pages, and so on, so that only one partial page per level is ever held in memory. The
+ * root page is written by {@link #finish()}.
+ *
+ * The root page is written to {@code <name>.rst} in the directory, and the other pages to the {@code _index}
+ * subdirectory. Pages are written like {@link SkipUnchanged#comparingContent()} writes files, so pages whose content
+ * didn't change since the last run are left alone. A TocTreeIndex is thread-safe and can be fed by a
+ * {@link DocumentSetWriter}, or by any other code writing files to the directory. An instance of the Builder class can
+ * be obtained by statically calling the {@code getBuilder} method.
+ */
+public class TocTreeIndex {
+    /**
+     * The subdirectory of the index directory holding the pages below the root page
+     */
+    public static final String PAGE_DIRECTORY = "_index";
+
+    private final Path directory;
+    private final String name;
+    private final String title;
+    private final int maxEntries;
+    private final int maxDepth;
+    private final Charset charset;
+    private final FileWriter writer = new FileWriter(null);
+    private final SkipUnchanged unchanged = SkipUnchanged.comparingContent();
+    /**
+     * the partial page of each level: level 0 lists files, level 1 lists pages of files, and so on
+     */
+    private final List<Level> levels = new ArrayList<>();
+    private long files;
+    private boolean finished;
+
+    private TocTreeIndex(Builder builder){
+        this.directory = builder.directory;
+        this.name = builder.name;
+        this.title = builder.title;
+        this.maxEntries = builder.maxEntries;
+        this.maxDepth = builder.maxDepth;
+        this.charset = builder.charset;
+        levels.add(new Level());
+    }
+
+    /**
+     * Returns a Builder for an index of the files written to the given directory
+     * @param directory the existing directory the files and the index are written to, the source directory of Sphinx
+     * @return a new Builder
+     */
+    public static Builder getBuilder(Path directory){
+        return new Builder(directory);
+    }
+
+    /**
+     * Adds a file to the index, writing the pages that fill up as a result
+     * @param file the path of the .rst file, within the directory of the index
+     * @return this TocTreeIndex with the file added
+     * @throws IOException if a page can't be written
+     * @throws IllegalArgumentException if the file isn't within the directory of the index
+     * @throws IllegalStateException if the index is finished
+     */
+    public synchronized TocTreeIndex add(Path file) throws IOException {
+        if(finished){
+            throw new IllegalStateException("The index is finished");
+        }
+        Path relative = directory.toAbsolutePath().normalize().relativize(file.toAbsolutePath().normalize());
+        if(relative.startsWith("..")){
+            throw new IllegalArgumentException(file + " isn't within " + directory);
+        }
+        StringBuilder document = new StringBuilder();
+        for(Path part : relative){
+            document.append('/').append(part);
+        }
+        String documentName = document.toString();
+        if(documentName.endsWith(".rst")){
+            documentName = documentName.substring(0, documentName.length() - 4);
+        }
+        files++;
+        add(0, new Entry(null, documentName, files, files));
+        return this;
+    }
+
+    private void add(int level, Entry entry) throws IOException {
+        //a full page is only written once there is more to list, so that a page never lists a single full page
+        if(levels.get(level).entries.size() == maxEntries){
+            flush(level);
+        }
+        levels.get(level).entries.add(entry);
+    }
+
+    //writes the partial page of the level and adds it to the level above
+    private void flush(int level) throws IOException {
+        Level l = levels.get(level);
+        if(level + 1 == levels.size()){
+            levels.add(new Level());
+        }
+        l.pages++;
+        String page = name + "-" + (level + 1) + "-" + l.pages;
+        long first = l.entries.get(0).first;
+        long last = l.entries.get(l.entries.size() - 1).last;
+        String label = title + " " + first + "-" + last;
+        Path path = directory.resolve(PAGE_DIRECTORY);
+        Files.createDirectories(path);
+        writePage(path.resolve(page + ".rst"), label, l.entries);
+        l.entries.clear();
+        add(level + 1, new Entry(label, "/" + PAGE_DIRECTORY + "/" + page, first, last));
+    }
+
+    /**
+     * Writes the pages not yet written and the root page. Nothing can be added afterward; calling this method again
+     * only returns the path of the root page.
+     * @return the path of the root page
+     * @throws IOException if a page can't be written
+     */
+    public synchronized Path finish() throws IOException {
+        Path root = directory.resolve(name + ".rst");
+        if(finished){
+            return root;
+        }
+        finished = true;
+        int level = 0;
+        //partial pages are written up to the first level that holds everything left
+        while(level + 1 < levels.size() || levels.get(level).pages > 0){
+            if(!levels.get(level).entries.isEmpty()){
+                flush(level);
+            }
+            level++;
+        }
+        writePage(root, title, levels.get(level).entries);
+        levels.get(level).entries.clear();
+        return root;
+    }
+
+    /**
+     * Returns the number of files added to the index
+     * @return the number of files
+     */
+    public synchronized long getFiles(){
+        return files;
+    }
+
+    private void writePage(Path path, String heading, List<Entry> entries) throws IOException {
+        TocTree tree = new TocTree();
+        if(maxDepth >= 0){
+            tree.setMaxDepth(maxDepth);
+        }
+        for(Entry entry : entries){
+            if(entry.label == null){
+                tree.addEntry(entry.document);
+            }
+            else{
+                tree.addEntry(entry.label, entry.document);
+            }
+        }
+        RstFile page = RstFile.getBuilder(heading)
+                .addHeading(Heading.getBuilder(heading).addDirective(tree).build())
+                .build();
+        writer.setFile(page).writeTo(path, charset, unchanged);
+        writer.setFile(null);
+    }
+
+    private static final class Entry {
+        /**
+         * the title shown for a page, or null for a file, which is shown with its own title
+         */
+        private final String label;
+        private final String document;
+        /**
+         * the numbers of the first and last files listed by this entry
+         */
+        private final long first;
+        private final long last;
+
+        private Entry(String label, String document, long first, long last){
+            this.label = label;
+            this.document = document;
+            this.first = first;
+            this.last = last;
+        }
+    }
+
+    private static final class Level {
+        private final List<Entry> entries = new ArrayList<>();
+        private int pages;
+    }
+
+    /**
+     * The Builder class configures a TocTreeIndex. By default the index is a single page named index.rst and titled
+     * "Index", whose tree shows the title of each file only, in UTF-8.
+     */
+    public static class Builder {
+        private final Path directory;
+        private String name = "index";
+        private String title = "Index";
+        private int maxEntries = Integer.MAX_VALUE;
+        private int maxDepth = 1;
+        private Charset charset = StandardCharsets.UTF_8;
+
+        /**
+         * Public constructor for the Builder of a TocTreeIndex
+         * @param directory the existing directory the files and the index are written to
+         */
+        public Builder(Path directory){
+            this.directory = directory;
+        }
+
+        /**
+         * Sets the name of the root page, without extension. Other pages are named after it
+         * @param name the name of the root page
+         * @return this Builder with the name set
+         */
+        public Builder setName(String name){
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * Sets the title of the root page. Other pages are titled after it, with the range of files they list
+         * @param title the title of the index
+         * @return this Builder with the title set
+         */
+        public Builder setTitle(String title){
+            this.title = title;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of entries in the tree of each page, splitting the index into a hierarchy of pages
+         * @param maxEntries the maximum number of entries per page
+         * @return this Builder with the maximum set
+         * @throws IllegalArgumentException if the maximum is less than 2
+         */
+        public Builder setMaxEntries(int maxEntries){
+            if(maxEntries < 2){
+                throw new IllegalArgumentException("A page must hold at least 2 entries");
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Sets the maxdepth option of the trees; see {@link TocTree#setMaxDepth(int)}
+         * @param maxDepth the maximum depth of the trees
+         * @return this Builder with the depth set
+         */
+        public Builder setMaxDepth(int maxDepth){
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * Sets the charset the pages are encoded in
+         * @param charset the charset of the pages
+         * @return this Builder with the charset set
+         */
+        public Builder setCharset(Charset charset){
+            this.charset = charset;
+            return this;
+        }
+
+        /**
+         * Creates a TocTreeIndex with the configuration of this Builder
+         * @return a TocTreeIndex
+         * @throws IllegalArgumentException if the directory doesn't exist
+         */
+        public TocTreeIndex build(){
+            if(!Files.isDirectory(directory)){
+                throw new IllegalArgumentException("Directory must be an existing directory");
+            }
+            return new TocTreeIndex(this);
+        }
+    }
+}
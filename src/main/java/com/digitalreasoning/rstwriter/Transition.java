@@ -1,12 +1,21 @@
 package com.digitalreasoning.rstwriter;
 
+import java.io.IOException;
+
 /**
  * A Transition is simply a horizontal bar that can be useful as an informal separation in content. Transitions can be nested
  * inside Headings, but not body elements.
  */
 public class Transition implements RstElement {
+    private static final String TEXT = "------\n";
+
     @Override
     public String write(){
-        return "------\n";
+        return TEXT;
+    }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        out.append(TEXT);
     }
 }
@@ -0,0 +1,183 @@
+package com.digitalreasoning.rstwriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The Utf8Output class is an Appendable that encodes the reStructuredText appended to it as UTF-8 and writes the bytes
+ * to an OutputStream or a ByteBuffer. Rendered text is almost entirely ASCII (borders, indentation and markup), so runs
+ * of ASCII chars are copied straight into a byte buffer and only the other chars are encoded, without going through a
+ * CharsetEncoder. Unpaired surrogates are replaced by '?', as {@code String.getBytes(UTF_8)} does.
+ *
+ * Bytes are staged in an internal buffer; {@link #finish()} must be called once everything has been appended. A
+ * finished Utf8Output can be pointed at another destination with {@code reset} and reused, keeping its buffer.
+ */
+final class Utf8Output implements Appendable {
+    private static final int BUFFER_SIZE = 8192;
+
+    private OutputStream stream;
+    private ByteBuffer target;
+    private final byte[] buffer;
+    private int position;
+    private long drained;
+    /**
+     * a high surrogate waiting for the low surrogate that completes it, or 0
+     */
+    private char pending;
+
+    Utf8Output(OutputStream stream){
+        this.buffer = new byte[BUFFER_SIZE];
+        reset(stream);
+    }
+
+    Utf8Output(ByteBuffer target){
+        this.buffer = new byte[BUFFER_SIZE];
+        reset(target);
+    }
+
+    /**
+     * Discards anything staged and directs the following output to the parameter stream
+     */
+    void reset(OutputStream stream){
+        clear();
+        this.stream = stream;
+    }
+
+    /**
+     * Discards anything staged and directs the following output to the parameter buffer
+     */
+    void reset(ByteBuffer target){
+        clear();
+        this.target = target;
+    }
+
+    private void clear(){
+        stream = null;
+        target = null;
+        position = 0;
+        drained = 0;
+        pending = 0;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+        if(csq == null){
+            return append("null");
+        }
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        if(csq == null){
+            return append("null", start, end);
+        }
+        int i = start;
+        while(i < end){
+            if(pending != 0){
+                append(csq.charAt(i++));
+                continue;
+            }
+            if(position == buffer.length){
+                drain();
+            }
+            int limit = Math.min(end, i + buffer.length - position);
+            char c;
+            while(i < limit && (c = csq.charAt(i)) < 0x80){
+                buffer[position++] = (byte) c;
+                i++;
+            }
+            if(i < limit){
+                append(csq.charAt(i++));
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        if(position + 4 > buffer.length){
+            drain();
+        }
+        if(pending != 0){
+            char high = pending;
+            pending = 0;
+            if(Character.isLowSurrogate(c)){
+                int codePoint = Character.toCodePoint(high, c);
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                return this;
+            }
+            buffer[position++] = '?';
+        }
+        if(c < 0x80){
+            buffer[position++] = (byte) c;
+        }
+        else if(c < 0x800){
+            buffer[position++] = (byte) (0xC0 | (c >> 6));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+        else if(Character.isHighSurrogate(c)){
+            pending = c;
+        }
+        else if(Character.isLowSurrogate(c)){
+            buffer[position++] = '?';
+        }
+        else{
+            buffer[position++] = (byte) (0xE0 | (c >> 12));
+            buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return this;
+    }
+
+    /**
+     * Encodes a trailing unpaired surrogate and writes all staged bytes to the stream or buffer. The stream is neither
+     * flushed nor closed.
+     * @return the total number of bytes written
+     * @throws IOException if the stream throws an IOException
+     * @throws java.nio.BufferOverflowException if the ByteBuffer has no room left for the bytes
+     */
+    long finish() throws IOException {
+        if(pending != 0){
+            pending = 0;
+            if(position == buffer.length){
+                drain();
+            }
+            buffer[position++] = '?';
+        }
+        drain();
+        return drained;
+    }
+
+    /**
+     * Writes the bytes staged so far to the stream or buffer, except for a high surrogate waiting for its low surrogate.
+     * The stream itself isn't flushed.
+     * @throws IOException if the stream throws an IOException
+     */
+    void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Returns the number of bytes encoded so far, whether or not they were written to the stream or buffer yet
+     * @return the number of bytes encoded
+     */
+    long encoded(){
+        return drained + position;
+    }
+
+    private void drain() throws IOException {
+        if(stream != null){
+            stream.write(buffer, 0, position);
+        }
+        else{
+            target.put(buffer, 0, position);
+        }
+        drained += position;
+        position = 0;
+    }
+}
@@ -3,6 +3,7 @@ package com.digitalreasoning.rstwriter.bodyelement;
 import java.util.List;
 
 import com.digitalreasoning.rstwriter.Inline;
+import com.digitalreasoning.rstwriter.InlineTemplate;
 import com.digitalreasoning.rstwriter.RstBodyElement;
 
 /**
@@ -61,6 +62,17 @@ public class AlphabeticList extends EnumeratedList{
         return this;
     }
 
+    /**
+     * Adds an item to this list, filling in the template with the Inlines
+     * @param template the compiled text of the item
+     * @param inlines the Inline arguments of the template
+     * @return this list with the item added
+     */
+    public AlphabeticList addItem(InlineTemplate template, Inline... inlines){
+        super.addItem(template, inlines);
+        return this;
+    }
+
     /**
      * Adds an item to this list
      * @param bodyElement the item to be added
@@ -1,8 +1,11 @@
 package com.digitalreasoning.rstwriter.bodyelement;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import com.digitalreasoning.rstwriter.Inline;
+import com.digitalreasoning.rstwriter.InlineTemplate;
 import com.digitalreasoning.rstwriter.RstBodyElement;
 
 /**
@@ -12,7 +15,11 @@ import com.digitalreasoning.rstwriter.RstBodyElement;
  * enumerated lists) and may contain text (with or without inline markup) or any other body element.
  */
 class AutoList implements RstBodyElement {
-    protected String text;
+    /**
+     * the content of the list in order: formatted text, and nested items and sub-lists that are only indented when
+     * the list is written
+     */
+    private ArrayList<RstBodyElement> parts;
     private String marker;
     private String start;
     private String align;
@@ -33,10 +40,10 @@ class AutoList implements RstBodyElement {
         for(int i = 0; i<this.marker.length() +1; i++){
             align += " ";
         }
-        text = "";
+        parts = new ArrayList<>();
         for(String line: lines){
             if(!line.equals("")) {
-                text += getSymbol() + " " + line + "\n";
+                parts.add(new Text(getSymbol() + " " + line + "\n"));
                 numItems++;
             }
         }
@@ -54,6 +61,18 @@ class AutoList implements RstBodyElement {
     }
 
 
+    /**
+     * Creates a copy of the parameter list; the copy doesn't see later additions to the original
+     * @param list the list to be copied
+     */
+    protected AutoList(AutoList list){
+        this.parts = new ArrayList<>(list.parts);
+        this.marker = list.marker;
+        this.start = list.start;
+        this.align = list.align;
+        this.numItems = list.numItems;
+    }
+
     /**
      * Creates an AutoList with items defined by the parameter String. Items are separated by '\n' characters. The type of
      * this list will determine which symbol will begin each item of the list
@@ -71,8 +90,22 @@ class AutoList implements RstBodyElement {
      * @return this list with the item added
      */
     protected AutoList addItem(String str, Inline... inlines){
-        String toAdd = processItem(str, inlines);
-        text += getSymbol() + " " + toAdd + "\n";
+        return addParsedItem(new Paragraph(str, inlines).getText());
+    }
+
+    /**
+     * Adds an item to this list, filling in the template with the Inlines
+     * @param template the compiled text of the item
+     * @param inlines the Inline arguments of the template
+     * @return this list with the item added
+     */
+    protected AutoList addItem(InlineTemplate template, Inline... inlines){
+        return addParsedItem(template.format(inlines));
+    }
+
+    private AutoList addParsedItem(String text){
+        String toAdd = processItem(text);
+        parts.add(new Text(getSymbol() + " " + toAdd + "\n"));
         numItems++;
         return this;
     }
@@ -83,16 +116,21 @@ class AutoList implements RstBodyElement {
      * @return this list with the item added
      */
     protected AutoList addItem(RstBodyElement element){
-        String[] lines = element.write().split("\n");
-        if(lines.length > 0){
+        if(!element.isBlank()){
+            parts.add(new Item(element.freeze(), getSymbol() + " ", align));
             numItems++;
-            text += getSymbol() + " " + lines[0] + "\n";
-            for(int i = 1; i<lines.length; i++)
-                text += align + lines[i] + "\n";
         }
         return this;
     }
 
+    /**
+     * Adds formatted text to the end of this list, without counting it as an item
+     * @param str the text to be added
+     */
+    protected void addText(String str){
+        parts.add(new Text(str));
+    }
+
     /**
      * Adds all items to the list
      * @param list items to be added
@@ -112,13 +150,10 @@ class AutoList implements RstBodyElement {
      * @return this list with the sub-list added
      */
     protected AutoList addSubList(AutoList list){
-        if(list.text.equals("")) return this;
-        text += "\n";
-        String[] items = list.text.split("\n");
-        for(String line : items){
-            text += Utils.INDENT + line + "\n";
-        }
-        text += "\n";
+        if(list.parts.isEmpty()) return this;
+        parts.add(new Text("\n"));
+        parts.add(new SubList(new AutoList(list)));
+        parts.add(new Text("\n"));
         return this;
     }
 
@@ -134,7 +169,54 @@ class AutoList implements RstBodyElement {
 
     @Override
     public String write() {
-        return bugCheck(text);
+        return Utils.write(this);
+    }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        if(numItems == 1){
+            //only a list with a single item can need the comment, which is detected as the text goes through
+            FormattingCheck check = new FormattingCheck(out);
+            writeParts(check);
+            if(check.needsFormattingComment()){
+                out.append(".. Formatting\n");
+            }
+        }
+        else{
+            writeParts(out);
+        }
+    }
+
+    private void writeParts(Appendable out) throws IOException {
+        for(RstBodyElement part : parts){
+            part.writeTo(out);
+        }
+    }
+
+    @Override
+    public RstBodyElement freeze(){
+        return new AutoList(this);
+    }
+
+    //an item always writes its marker, so only a list of formatted text can be blank
+    @Override
+    public boolean isBlank(){
+        if(numItems > 0){
+            return false;
+        }
+        boolean newLines = false;
+        for(RstBodyElement part : parts){
+            if(!(part instanceof Text)){
+                //a sub-list without items, which is rare enough to be rendered
+                return RstBodyElement.super.isBlank();
+            }
+            String text = part.write();
+            if(!Utils.onlyNewLines(text)){
+                return false;
+            }
+            newLines |= !text.isEmpty();
+        }
+        return newLines;
     }
 
     @Override
@@ -142,8 +224,7 @@ class AutoList implements RstBodyElement {
         return write();
     }
 
-    private String processItem(String str, Inline... inlines){
-        String process = new Paragraph(str, inlines).getText();
+    private String processItem(String process){
         while(process.startsWith("\n")){
             process = process.substring(1);
         }
@@ -174,18 +255,133 @@ class AutoList implements RstBodyElement {
     }
 
     //This bug happens in a few parsers I've tried. If used on the right side of a field list, with a single item in each
-    //the main list and sublist, the parser will combine them to a single list. This function corrects for this with a
-    //formatted comment
-    private String bugCheck(String str){
-        if(numItems == 1){
-            int index = str.indexOf("\n\n" + Utils.INDENT);
-            if(index != -1){
-                int newLine = str.indexOf("\n", index+ ("\n\n" + Utils.INDENT).length());
-                if(newLine == str.length()-2 && str.charAt(newLine+1) == '\n'){
-                    return str + ".. Formatting\n";
+    //the main list and sublist, the parser will combine them to a single list. This sink detects this case, text whose
+    //first blank line followed by an indent starts its last line, so it can be corrected with a formatted comment
+    private static final class FormattingCheck implements Appendable {
+        private final Appendable out;
+        private int newLines;
+        private int spaces;
+        private boolean indented;
+        private int newLinesAfter;
+        private boolean endsWithBlankLine;
+        private char last;
+
+        private FormattingCheck(Appendable out){
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            if(csq == null){
+                return append("null");
+            }
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            for(int i = start; i < end; i++){
+                check(csq.charAt(i));
+            }
+            out.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            check(c);
+            out.append(c);
+            return this;
+        }
+
+        private void check(char c){
+            if(indented){
+                if(c == '\n'){
+                    newLinesAfter++;
                 }
+                endsWithBlankLine = c == '\n' && last == '\n';
             }
+            else if(c == '\n'){
+                newLines = spaces > 0 ? 1 : newLines + 1;
+                spaces = 0;
+            }
+            else if(c == ' ' && newLines >= 2){
+                if(++spaces == Utils.INDENT.length()){
+                    indented = true;
+                }
+            }
+            else{
+                newLines = 0;
+                spaces = 0;
+            }
+            last = c;
+        }
+
+        private boolean needsFormattingComment(){
+            return indented && newLinesAfter == 2 && endsWithBlankLine;
+        }
+    }
+
+    /**
+     * An item of the list holding a body element: its first line follows the item's marker and the others are aligned
+     * with it
+     */
+    private static final class Item implements RstBodyElement {
+        private final RstBodyElement element;
+        private final String marker;
+        private final String align;
+
+        private Item(RstBodyElement element, String marker, String align){
+            this.element = element;
+            this.marker = marker;
+            this.align = align;
+        }
+
+        @Override
+        public String write(){
+            return Utils.write(this);
+        }
+
+        @Override
+        public void writeTo(Appendable out) throws IOException {
+            IndentingAppendable indented = IndentingAppendable.of(out);
+            indented.push(marker, align);
+            element.writeTo(indented);
+            indented.pop();
+        }
+
+        @Override
+        public Item freeze(){
+            return this;
+        }
+    }
+
+    /**
+     * A sub-list, indented as a whole and written without its own formatting comment
+     */
+    private static final class SubList implements RstBodyElement {
+        private final AutoList list;
+
+        private SubList(AutoList list){
+            this.list = list;
+        }
+
+        @Override
+        public String write(){
+            return Utils.write(this);
+        }
+
+        @Override
+        public void writeTo(Appendable out) throws IOException {
+            IndentingAppendable indented = IndentingAppendable.of(out);
+            indented.push(Utils.INDENT, Utils.INDENT);
+            list.writeParts(indented);
+            indented.pop();
+        }
+
+        @Override
+        public SubList freeze(){
+            return this;
         }
-        return str;
     }
 }
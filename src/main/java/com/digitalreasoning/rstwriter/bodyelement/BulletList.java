@@ -3,6 +3,7 @@ package com.digitalreasoning.rstwriter.bodyelement;
 import java.util.List;
 
 import com.digitalreasoning.rstwriter.Inline;
+import com.digitalreasoning.rstwriter.InlineTemplate;
 import com.digitalreasoning.rstwriter.RstBodyElement;
 
 /**
@@ -39,6 +40,17 @@ public class BulletList extends AutoList {
         return this;
     }
 
+    /**
+     * Adds an item to this list, filling in the template with the Inlines
+     * @param template the compiled text of the item
+     * @param inlines the Inline arguments of the template
+     * @return this list with the item added
+     */
+    public BulletList addItem(InlineTemplate template, Inline... inlines){
+        super.addItem(template, inlines);
+        return this;
+    }
+
     /**
      * Adds an item to this list
      * @param bodyElement the item to be added
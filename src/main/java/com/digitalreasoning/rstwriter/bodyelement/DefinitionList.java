@@ -1,8 +1,10 @@
 package com.digitalreasoning.rstwriter.bodyelement;
 
+import java.io.IOException;
 import java.util.Map;
 
 import com.digitalreasoning.rstwriter.Inline;
+import com.digitalreasoning.rstwriter.InlineTemplate;
 import com.digitalreasoning.rstwriter.RstBodyElement;
 
 /**
@@ -42,6 +44,10 @@ public class DefinitionList extends PairedList {
         addItems(map);
     }
     
+    private DefinitionList(DefinitionList list){
+        super(list);
+    }
+
     /**
      * Adds a term/definition pair to the list.
      * @param term the term being defined
@@ -55,6 +61,19 @@ public class DefinitionList extends PairedList {
         return this;
     }
 
+    /**
+     * Adds a term/definition pair to the list, filling in the template of the definition with the Inlines.
+     * @param term the term being defined
+     * @param definition the compiled definition of the term
+     * @param inlines the Inline arguments of the template
+     * @return this list with the term/definition added
+     * @throws IllegalArgumentException if term is empty or contains new line characters ('\n')
+     */
+    public DefinitionList addItem(String term, InlineTemplate definition, Inline... inlines){
+        super.addItem(correctTerm(term, null), definition, inlines);
+        return this;
+    }
+
     /**
      * Adds a (term:classifiers)/definition pair to the list.
      * @param term the term being defined
@@ -125,12 +144,17 @@ public class DefinitionList extends PairedList {
     }
 
     @Override
-    public String write(){
+    public void writeTo(Appendable out) throws IOException {
         try{
-            return super.write();
+            super.writeTo(out);
         }catch(IllegalStateException e){
             throw new IllegalStateException(e.getMessage().replace("left", "terms").replace("right", "definitions"));
         }
     }
 
+    @Override
+    public DefinitionList freeze(){
+        return new DefinitionList(this);
+    }
+
 }
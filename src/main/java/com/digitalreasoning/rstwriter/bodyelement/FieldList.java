@@ -1,8 +1,10 @@
 package com.digitalreasoning.rstwriter.bodyelement;
 
+import java.io.IOException;
 import java.util.Map;
 
 import com.digitalreasoning.rstwriter.Inline;
+import com.digitalreasoning.rstwriter.InlineTemplate;
 import com.digitalreasoning.rstwriter.RstBodyElement;
 
 /**
@@ -39,6 +41,10 @@ public class FieldList extends PairedList {
         addItems(map);
     }
     
+    private FieldList(FieldList list){
+        super(list);
+    }
+
     /**
      * Adds a field/definition pair to the list.
      * @param field an information field
@@ -54,6 +60,21 @@ public class FieldList extends PairedList {
         return this;
     }
 
+    /**
+     * Adds a field/definition pair to the list, filling in the template of the definition with the Inlines.
+     * @param field an information field
+     * @param definition the compiled value to assign to the field
+     * @param inlines the Inline arguments of the template
+     * @return this list with the field/definition added
+     * @throws IllegalArgumentException if field is empty or contains new line characters ('\n')
+     */
+    public FieldList addItem(String field, InlineTemplate definition, Inline... inlines){
+        if(field.equals("")) throw new IllegalArgumentException("Empty field names not allowed");
+        if(field.contains("\n")) throw new IllegalArgumentException("Field name can't contain new line");
+        super.addItem(":" + field.replaceAll(":", "\\:") + ":", definition, inlines);
+        return this;
+    }
+
     /**
      * Adds a field/definition pair to the list.
      * @param field the field being defined
@@ -82,11 +103,16 @@ public class FieldList extends PairedList {
     }
 
     @Override
-    public String write() {
+    public void writeTo(Appendable out) throws IOException {
         try{
-            return super.write();
+            super.writeTo(out);
         }catch(IllegalStateException e){
             throw new IllegalStateException(e.getMessage().replace("left", "fields").replace("right", "definitions"));
         }
     }
+
+    @Override
+    public FieldList freeze(){
+        return new FieldList(this);
+    }
 }
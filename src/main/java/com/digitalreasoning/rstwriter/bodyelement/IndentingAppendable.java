@@ -0,0 +1,298 @@
+package com.digitalreasoning.rstwriter.bodyelement;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The IndentingAppendable class prefixes the lines of nested body elements as they are written, so an element nested
+ * in a list, a field list or a directive is rendered once, straight to the output, however deep it is nested. Each
+ * level of nesting pushes a prefix for its first line and one for the lines that follow, and pops it when the nested
+ * element is written. Lines are treated the way splitting the nested text on '\n' would treat them: blank lines between
+ * other lines are prefixed, blank lines at the end are dropped, and every line ends with '\n'.
+ *
+ * Body elements writing nested content should get their sink through {@link #of(Appendable)}, so that all levels of
+ * nesting share the same prefix stack. Code rendering many documents can write them all through one IndentingAppendable,
+ * pointing it at each output in turn with {@link #reset(Appendable)}; with no level of nesting open, text is passed
+ * straight through.
+ */
+public final class IndentingAppendable implements Appendable {
+    private Appendable out;
+    private int depth;
+    private String[] firstPrefixes = new String[8];
+    private String[] prefixes = new String[8];
+    private boolean[] skipBlankLines = new boolean[8];
+    /**
+     * whether a level has received any char since it was pushed
+     */
+    private boolean[] written = new boolean[8];
+    /**
+     * whether a level is in the middle of a line, so its next char doesn't need a prefix
+     */
+    private boolean[] midLine = new boolean[8];
+    private int[] lines = new int[8];
+    private int[] blankLines = new int[8];
+    private int[] trailingNewlines = new int[8];
+    /**
+     * whether a level pushed by {@link #pushUnlessWhitespace} has only received whitespace so far, which it holds
+     */
+    private boolean[] holding = new boolean[8];
+    private StringBuilder[] held = new StringBuilder[8];
+
+    private IndentingAppendable(Appendable out){
+        this.out = out;
+    }
+
+    /**
+     * Returns the parameter Appendable if it is already an IndentingAppendable, or a new IndentingAppendable writing
+     * to it otherwise
+     * @param out the sink the indented text is written to
+     * @return an IndentingAppendable writing to the parameter sink
+     */
+    public static IndentingAppendable of(Appendable out){
+        if(out instanceof IndentingAppendable){
+            return (IndentingAppendable) out;
+        }
+        return new IndentingAppendable(out);
+    }
+
+    /**
+     * Makes this IndentingAppendable write to another sink, ending any level of nesting left open by a render that
+     * failed. The prefix stack keeps the capacity it grew to.
+     * @param out the sink the indented text is written to from now on
+     * @return this IndentingAppendable
+     */
+    public IndentingAppendable reset(Appendable out){
+        Arrays.fill(firstPrefixes, 0, depth, null);
+        Arrays.fill(prefixes, 0, depth, null);
+        Arrays.fill(holding, 0, depth, false);
+        depth = 0;
+        this.out = out;
+        return this;
+    }
+
+    /**
+     * Starts a level of nesting. Until the matching {@link #pop()}, the first line written is prefixed with
+     * {@code firstPrefix} and the others with {@code prefix}
+     * @param firstPrefix the prefix of the first line, e.g. a list marker
+     * @param prefix the prefix of the following lines, e.g. an indent
+     * @return this IndentingAppendable
+     */
+    public IndentingAppendable push(String firstPrefix, String prefix){
+        return push(firstPrefix, prefix, false);
+    }
+
+    /**
+     * Starts a level of nesting in which every line is prefixed with {@code prefix} and blank lines are dropped
+     * @param prefix the prefix of every line
+     * @return this IndentingAppendable
+     */
+    public IndentingAppendable pushSkippingBlankLines(String prefix){
+        return push(prefix, prefix, true);
+    }
+
+    /**
+     * Starts a level of nesting like {@link #push(String, String)}, except that its text is held back while it is only
+     * whitespace: a level that receives nothing else before the matching {@link #pop()} writes nothing at all
+     * @param firstPrefix the prefix of the first line
+     * @param prefix the prefix of the following lines
+     * @return this IndentingAppendable
+     */
+    public IndentingAppendable pushUnlessWhitespace(String firstPrefix, String prefix){
+        push(firstPrefix, prefix, false);
+        int level = depth - 1;
+        holding[level] = true;
+        if(held[level] == null){
+            held[level] = new StringBuilder();
+        }
+        return this;
+    }
+
+    private IndentingAppendable push(String firstPrefix, String prefix, boolean skipBlank){
+        if(depth == prefixes.length){
+            grow();
+        }
+        firstPrefixes[depth] = firstPrefix;
+        prefixes[depth] = prefix;
+        skipBlankLines[depth] = skipBlank;
+        written[depth] = false;
+        midLine[depth] = false;
+        lines[depth] = 0;
+        blankLines[depth] = 0;
+        trailingNewlines[depth] = 0;
+        holding[depth] = false;
+        depth++;
+        return this;
+    }
+
+    /**
+     * Ends the innermost level of nesting, finishing its last line. Like the text of an empty element split on '\n',
+     * a level that received no chars at all still writes its (empty) first line, unless it skips blank lines or only
+     * writes text that isn't whitespace
+     * @throws IOException if the underlying sink throws an IOException
+     * @throws IllegalStateException if no level of nesting is open
+     */
+    public void pop() throws IOException {
+        if(depth == 0){
+            throw new IllegalStateException("No indentation level to end");
+        }
+        int level = depth - 1;
+        if(holding[level]){
+            holding[level] = false;
+            held[level].setLength(0);
+        }
+        else if(midLine[level]){
+            put(level - 1, '\n');
+        }
+        else if(!written[level] && !skipBlankLines[level]){
+            put(level - 1, firstPrefixes[level]);
+            put(level - 1, '\n');
+        }
+        firstPrefixes[level] = null;
+        prefixes[level] = null;
+        depth--;
+    }
+
+    /**
+     * Returns the number of consecutive '\n' chars that ended the text written since the innermost level of nesting
+     * was pushed
+     * @return the number of trailing new lines
+     * @throws IllegalStateException if no level of nesting is open
+     */
+    public int trailingNewlines(){
+        if(depth == 0){
+            throw new IllegalStateException("No indentation level is open");
+        }
+        return trailingNewlines[depth - 1];
+    }
+
+    @Override
+    public IndentingAppendable append(CharSequence csq) throws IOException {
+        if(csq == null){
+            return append("null");
+        }
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public IndentingAppendable append(CharSequence csq, int start, int end) throws IOException {
+        if(csq == null){
+            return append("null", start, end);
+        }
+        put(depth - 1, csq, start, end);
+        return this;
+    }
+
+    @Override
+    public IndentingAppendable append(char c) throws IOException {
+        put(depth - 1, c);
+        return this;
+    }
+
+    //passes a char written at the given level of nesting down to the level below it, adding that level's prefixes
+    private void put(int level, char c) throws IOException {
+        if(level < 0 || (midLine[level] && c != '\n')){
+            out.append(c);
+            return;
+        }
+        if(holding[level]){
+            if(c <= ' '){
+                held[level].append(c);
+                trailingNewlines[level] = c == '\n' ? trailingNewlines[level] + 1 : 0;
+                return;
+            }
+            //the first char that isn't whitespace: the held text is written after all
+            holding[level] = false;
+            trailingNewlines[level] = 0;
+            StringBuilder whitespace = held[level];
+            for(int i = 0; i < whitespace.length(); i++){
+                put(level, whitespace.charAt(i));
+            }
+            whitespace.setLength(0);
+        }
+        written[level] = true;
+        if(c == '\n'){
+            trailingNewlines[level]++;
+            if(midLine[level]){
+                for(int below = 0; below <= level; below++){
+                    midLine[below] = false;
+                    lines[below]++;
+                    trailingNewlines[below] = 1;
+                }
+                out.append('\n');
+            }
+            else{
+                blankLines[level]++;
+            }
+        }
+        else{
+            trailingNewlines[level] = 0;
+            if(!midLine[level]){
+                startLine(level);
+            }
+            put(level - 1, c);
+        }
+    }
+
+    //passes text written at the given level of nesting down. Once a level is in the middle of a line, so are all the
+    //levels below it, and the rest of the line is written straight to the output
+    private void put(int level, CharSequence csq, int start, int end) throws IOException {
+        int i = start;
+        while(i < end){
+            if(level < 0){
+                out.append(csq, i, end);
+                return;
+            }
+            if(midLine[level]){
+                int newLine = i;
+                while(newLine < end && csq.charAt(newLine) != '\n'){
+                    newLine++;
+                }
+                if(newLine == end){
+                    out.append(csq, i, end);
+                    return;
+                }
+                out.append(csq, i, newLine + 1);
+                for(int below = 0; below <= level; below++){
+                    midLine[below] = false;
+                    lines[below]++;
+                    trailingNewlines[below] = 1;
+                }
+                i = newLine + 1;
+            }
+            else{
+                put(level, csq.charAt(i++));
+            }
+        }
+    }
+
+    private void put(int level, String str) throws IOException {
+        put(level, str, 0, str.length());
+    }
+
+    //blank lines are only written once a line with content follows them
+    private void startLine(int level) throws IOException {
+        for(; blankLines[level] > 0; blankLines[level]--){
+            if(!skipBlankLines[level]){
+                put(level - 1, lines[level] == 0 ? firstPrefixes[level] : prefixes[level]);
+                put(level - 1, '\n');
+            }
+            lines[level]++;
+        }
+        put(level - 1, lines[level] == 0 ? firstPrefixes[level] : prefixes[level]);
+        midLine[level] = true;
+    }
+
+    private void grow(){
+        int length = prefixes.length * 2;
+        firstPrefixes = Arrays.copyOf(firstPrefixes, length);
+        prefixes = Arrays.copyOf(prefixes, length);
+        skipBlankLines = Arrays.copyOf(skipBlankLines, length);
+        written = Arrays.copyOf(written, length);
+        midLine = Arrays.copyOf(midLine, length);
+        lines = Arrays.copyOf(lines, length);
+        blankLines = Arrays.copyOf(blankLines, length);
+        trailingNewlines = Arrays.copyOf(trailingNewlines, length);
+        holding = Arrays.copyOf(holding, length);
+        held = Arrays.copyOf(held, length);
+    }
+}
@@ -1,6 +1,6 @@
 package com.digitalreasoning.rstwriter.bodyelement;
 
-import java.util.List;
+import java.io.IOException;
 
 import com.digitalreasoning.rstwriter.Inline;
 import com.digitalreasoning.rstwriter.RstBodyElement;
@@ -15,10 +15,14 @@ public class LineBlock implements RstBodyElement {
         autoList = new AutoList(str, "|");
     }
 
+    private LineBlock(LineBlock lineBlock){
+        autoList = new AutoList(lineBlock.autoList);
+    }
+
     public LineBlock addLine(String str, Inline... inlines){
         String toAdd = new Paragraph(str, inlines).getText();
         toAdd = toAdd.replaceAll("\n", "\n| ");
-        autoList.text += "| " + toAdd + "\n";
+        autoList.addText("| " + toAdd + "\n");
         return this;
     }
 
@@ -32,4 +36,19 @@ public class LineBlock implements RstBodyElement {
         return autoList.write();
     }
 
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        autoList.writeTo(out);
+    }
+
+    @Override
+    public boolean isBlank(){
+        return autoList.isBlank();
+    }
+
+    @Override
+    public LineBlock freeze(){
+        return new LineBlock(this);
+    }
+
 }
@@ -2,6 +2,8 @@ package com.digitalreasoning.rstwriter.bodyelement;
 
 import com.digitalreasoning.rstwriter.Definition;
 
+import java.io.IOException;
+
 /**
  * The LinkDefinition class defines a definition for an inline link in the content of an {@link com.digitalreasoning.rstwriter.RstFile} or
  * {@link com.digitalreasoning.rstwriter.Heading}. The definition can be placed anywhere in a reStructuredText file but the identifier
@@ -35,4 +37,14 @@ public class LinkDefinition implements Definition {
     public String write(){
         return text + "\n";
     }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        out.append(text).append('\n');
+    }
+
+    @Override
+    public LinkDefinition freeze(){
+        return this;
+    }
 }
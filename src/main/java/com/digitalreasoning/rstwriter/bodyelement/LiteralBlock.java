@@ -2,6 +2,8 @@ package com.digitalreasoning.rstwriter.bodyelement;
 
 import com.digitalreasoning.rstwriter.RstBodyElement;
 
+import java.io.IOException;
+
 /**
  * The LiteralBlock class is a representation of the reStructuredText's literal block. None of the text contained in this
  * block will be processed by the parser. This block can consist of multiple lines, blank lines, and any text. As this
@@ -19,13 +21,17 @@ public class LiteralBlock implements RstBodyElement {
         addText(str);
     }
 
+    private LiteralBlock(LiteralBlock literalBlock){
+        text = literalBlock.text;
+    }
+
     /**
      * Adds a line of text to the end literal block and appends a new line character to the end
      * @param line the text to be added to the literal block
      * @return this literal block with the line added
      */
     public LiteralBlock addLine(String line){
-        text += Utils.INDENT + line.replaceAll("\t", Utils.INDENT) + "\n";
+        text += Utils.INDENT + line.replace("\t", Utils.INDENT) + "\n";
         return this;
     }
 
@@ -37,7 +43,7 @@ public class LiteralBlock implements RstBodyElement {
     public LiteralBlock addText(String text){
         String[] lines = text.split("\n");
         for(String line : lines){
-            this.text += Utils.INDENT + line.replaceAll("\t", Utils.INDENT) + "\n";
+            this.text += Utils.INDENT + line.replace("\t", Utils.INDENT) + "\n";
         }
         return this;
     }
@@ -46,4 +52,14 @@ public class LiteralBlock implements RstBodyElement {
     public String write(){
         return text;
     }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        out.append(text);
+    }
+
+    @Override
+    public LiteralBlock freeze(){
+        return new LiteralBlock(this);
+    }
 }
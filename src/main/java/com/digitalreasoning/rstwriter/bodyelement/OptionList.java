@@ -1,8 +1,10 @@
 package com.digitalreasoning.rstwriter.bodyelement;
 
+import java.io.IOException;
 import java.util.Map;
 
 import com.digitalreasoning.rstwriter.Inline;
+import com.digitalreasoning.rstwriter.InlineTemplate;
 import com.digitalreasoning.rstwriter.RstBodyElement;
 
 /**
@@ -40,6 +42,10 @@ public class OptionList extends PairedList {
         addItems(map);
     }
     
+    private OptionList(OptionList list){
+        super(list);
+    }
+
     /**
      * Adds a option/definition pair to the list.
      * @param option a command line option being defined
@@ -54,6 +60,20 @@ public class OptionList extends PairedList {
         return this;
     }
 
+    /**
+     * Adds a option/definition pair to the list, filling in the template of the definition with the Inlines.
+     * @param option a command line option being defined
+     * @param definition the compiled definition of the option
+     * @param inlines the Inline arguments of the template
+     * @return this list with the option/definition added
+     * @throws IllegalArgumentException if option is empty, contains white space, or doesn't start with '-' or '/'
+     */
+    public OptionList addItem(String option, InlineTemplate definition, Inline... inlines){
+        validateSyntax(option);
+        super.addItem(option, definition, inlines);
+        return this;
+    }
+
     /**
      * Adds a option/definition pair to the list.
      * @param option the option being defined
@@ -91,14 +111,19 @@ public class OptionList extends PairedList {
     }
 
     @Override
-    public String write() {
+    public void writeTo(Appendable out) throws IOException {
         try{
-            return super.write();
+            super.writeTo(out);
         }catch(IllegalStateException e){
             throw new IllegalStateException(e.getMessage().replace("left", "fields").replace("right", "definitions"));
         }
     }
 
+    @Override
+    public OptionList freeze(){
+        return new OptionList(this);
+    }
+
     private void validateSyntax(String option){
         if(option.contains(" ") || option.contains("\t") || option.contains("\n"))
             throw new IllegalArgumentException("White space not allowed in options: " + option);
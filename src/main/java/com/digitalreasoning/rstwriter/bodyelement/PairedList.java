@@ -1,8 +1,11 @@
 package com.digitalreasoning.rstwriter.bodyelement;
 
 import com.digitalreasoning.rstwriter.Inline;
+import com.digitalreasoning.rstwriter.InlineTemplate;
 import com.digitalreasoning.rstwriter.RstBodyElement;
 
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
 
@@ -12,8 +15,12 @@ import java.util.Map;
  */
 class PairedList implements RstBodyElement {
     protected LinkedList<String> leftList;
-    protected LinkedList<String> rightList;
+    protected LinkedList<RstBodyElement> rightList;
     protected String division;
+    /**
+     * the prefixes of the first and following lines of each row, computed when the row is added
+     */
+    private LinkedList<String[]> rowPrefixes;
 
     /**
      * creates an empty paired list with the specified division mechanism between left and right elements
@@ -22,9 +29,21 @@ class PairedList implements RstBodyElement {
     public PairedList(String division){
         leftList = new LinkedList<>();
         rightList = new LinkedList<>();
+        rowPrefixes = new LinkedList<>();
         this.division = division;
     }
 
+    /**
+     * creates a copy of the parameter list; the copy doesn't see later additions to the original
+     * @param list the list to be copied
+     */
+    protected PairedList(PairedList list){
+        leftList = new LinkedList<>(list.leftList);
+        rightList = new LinkedList<>(list.rightList);
+        rowPrefixes = new LinkedList<>(list.rowPrefixes);
+        division = list.division;
+    }
+
     /**
      * creates a paired list with the specified division mechanism and the items designated by the map. Order of items
      * will be determined by the map's foreach ordering. The map's keys will be the left elements, values will be right
@@ -43,8 +62,21 @@ class PairedList implements RstBodyElement {
      * @return this paired list with the item added
      */
     public PairedList addItem(String left, String right, Inline... inlines){
-        leftList.add(left); 
-        rightList.add(new Paragraph(right, inlines).getText());
+        addLeft(left);
+        rightList.add(new Text(new Paragraph(right, inlines).getText()));
+        return this;
+    }
+
+    /**
+     * Adds an item to this list, filling in the template of the right element with the Inlines
+     * @param left the left element in the item to be added, e.g. a term
+     * @param right the compiled right element in the item to be added, e.g. a definition
+     * @param inlines the Inline arguments of the template
+     * @return this paired list with the item added
+     */
+    public PairedList addItem(String left, InlineTemplate right, Inline... inlines){
+        addLeft(left);
+        rightList.add(new Text(right.format(inlines)));
         return this;
     }
 
@@ -55,8 +87,8 @@ class PairedList implements RstBodyElement {
      * @return this paired list with the item added
      */
     public PairedList addItem(String left, RstBodyElement right){
-        leftList.add(left);
-        rightList.add(right.write());
+        addLeft(left);
+        rightList.add(right.freeze());
         return this;
     }
 
@@ -75,41 +107,64 @@ class PairedList implements RstBodyElement {
     
     @Override
     public String write(){
+        return Utils.write(this);
+    }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
         if(leftList.size() != rightList.size()){
             throw new IllegalStateException("Unequal numbers of left and right");
         }
-        String text = "";
-        for(int i = 0; i < leftList.size(); i++){
-            text += writeRow(leftList.get(i), rightList.get(i));
+        IndentingAppendable indented = IndentingAppendable.of(out);
+        Iterator<RstBodyElement> right = rightList.iterator();
+        if(rowPrefixes.size() == leftList.size()){
+            for(String[] prefixes : rowPrefixes){
+                writeRow(indented, prefixes[0], prefixes[1], right.next());
+            }
+        }
+        else{
+            //a subclass added to leftList directly
+            for(String left : leftList){
+                writeRow(indented, left + division, adjustAlignment(left), right.next());
+            }
         }
-        return text;
     }
 
+    private void addLeft(String left){
+        leftList.add(left);
+        rowPrefixes.add(new String[]{left + division, adjustAlignment(left)});
+    }
 
-    private String writeRow(String left, String right){
-        String row = left + division;
-        String[] lines = right.split("\n");
-        if(lines.length == 0) return "";
-        row += lines[0] + "\n";
-        for(int i = 1; i<lines.length; i++){
-            row += adjustAlignment(left) + lines[i] + "\n";
-        }
-        return row;
+
+    @Override
+    public RstBodyElement freeze(){
+        return new PairedList(this);
+    }
+
+    //a row writes its left element and division unless its right element is blank, in which case it writes nothing
+    @Override
+    public boolean isBlank(){
+        return false;
+    }
+
+    //the right element is written once, with its first line after the left element and the others aligned with it
+    private void writeRow(IndentingAppendable out, String firstPrefix, String prefix, RstBodyElement right)
+            throws IOException {
+        out.push(firstPrefix, prefix);
+        right.writeTo(out);
+        out.pop();
     }
 
     //corrects for multi-lined definitions
     private String adjustAlignment(String left){
-        String spaces = "";
         int newLine = division.indexOf('\n');
-        if(newLine == -1){
-            for(int i = 0; i<left.length(); i++){
-                spaces += " ";
-            }
-            spaces += division;
+        if(newLine != -1){
+            return division.substring(newLine+1);
         }
-        else{
-            spaces += division.substring(newLine+1);
+        StringBuilder spaces = new StringBuilder(left.length() + division.length());
+        for(int i = 0; i<left.length(); i++){
+            spaces.append(' ');
         }
-        return spaces;
+        return spaces.append(division).toString();
     }
 }
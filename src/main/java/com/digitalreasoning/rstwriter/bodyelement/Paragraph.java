@@ -1,7 +1,13 @@
 package com.digitalreasoning.rstwriter.bodyelement;
 
 import com.digitalreasoning.rstwriter.Inline;
+import com.digitalreasoning.rstwriter.InlineTemplate;
 import com.digitalreasoning.rstwriter.RstBodyElement;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+
 import static com.digitalreasoning.rstwriter.bodyelement.Utils.inlineParse;
 
 /**
@@ -10,7 +16,10 @@ import static com.digitalreasoning.rstwriter.bodyelement.Utils.inlineParse;
  * specifically two consecutive new line characters ('\n').
  */
 public class Paragraph implements RstBodyElement {
-    private String text;
+    /**
+     * the processed text, as Strings and as Inlines that are rendered only when the paragraph is written
+     */
+    private final ArrayList<Object> parts;
 
     /**
      * Creates a new paragraph whose text is the parameter String. WARNING: This text is processed, so the text must be
@@ -19,7 +28,31 @@ public class Paragraph implements RstBodyElement {
      * @param inlines optional arguments specifying inline markup in the text
      */
     public Paragraph(String str, Inline... inlines){
-        text = inlineParse(str, inlines);
+        parts = new ArrayList<>(1);
+        parts.add(inlineParse(str, inlines));
+    }
+
+    /**
+     * Creates a new paragraph whose text is the parameter template filled in with the parameter Inlines
+     * @param template the compiled text of the paragraph
+     * @param inlines the Inline arguments of the template
+     */
+    public Paragraph(InlineTemplate template, Inline... inlines){
+        parts = new ArrayList<>(1);
+        parts.add(template.format(inlines));
+    }
+
+    /**
+     * Creates a new paragraph whose text is the parameter Inline, which is rendered when the paragraph is written
+     * @param content the text of the paragraph
+     */
+    public Paragraph(Inline content){
+        parts = new ArrayList<>(1);
+        parts.add(content);
+    }
+
+    private Paragraph(Paragraph paragraph){
+        parts = new ArrayList<>(paragraph.parts);
     }
 
     /**
@@ -29,17 +62,82 @@ public class Paragraph implements RstBodyElement {
      * @return this Paragraph with the text added
      */
     public Paragraph addText(String str, Inline... inlines){
-        text += inlineParse(str, inlines);
+        parts.add(inlineParse(str, inlines));
+        return this;
+    }
+
+    /**
+     * Adds the parameter template, filled in with the parameter Inlines, to the end of this Paragraph.
+     * @param template the compiled text to add to the end of the paragraph
+     * @param inlines the Inline arguments of the template
+     * @return this Paragraph with the text added
+     */
+    public Paragraph addText(InlineTemplate template, Inline... inlines){
+        parts.add(template.format(inlines));
+        return this;
+    }
+
+    /**
+     * Adds the parameter Inline to the end of this Paragraph, to be rendered when the paragraph is written.
+     * @param content the text to add to the end of the paragraph
+     * @return this Paragraph with the text added
+     */
+    public Paragraph addText(Inline content){
+        parts.add(content);
         return this;
     }
 
     protected String getText(){
-        return text;
+        if(parts.size() == 1 && parts.get(0) instanceof String){
+            return (String) parts.get(0);
+        }
+        StringBuilder builder = new StringBuilder(length());
+        try{
+            writeText(builder);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    private int length(){
+        int length = 0;
+        for(Object part : parts){
+            length += part instanceof Inline ? ((Inline) part).length() : ((String) part).length();
+        }
+        return length;
+    }
+
+    private void writeText(Appendable out) throws IOException {
+        for(Object part : parts){
+            if(part instanceof Inline){
+                ((Inline) part).writeTo(out);
+            }
+            else{
+                out.append((String) part);
+            }
+        }
     }
 
     @Override
     public String write(){
-        return text + "\n";
+        return getText() + "\n";
+    }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        writeText(out);
+        out.append('\n');
+    }
+
+    @Override
+    public boolean isBlank(){
+        return Utils.onlyNewLines(getText());
+    }
+
+    @Override
+    public Paragraph freeze(){
+        return new Paragraph(this);
     }
 
 
@@ -3,6 +3,8 @@ package com.digitalreasoning.rstwriter.bodyelement;
 import com.digitalreasoning.rstwriter.Definition;
 import com.digitalreasoning.rstwriter.Directive;
 
+import java.io.IOException;
+
 /**
  * The SubstitutionDefinition class defines a definition for an inline substitution in the content of an {@link com.digitalreasoning.rstwriter.RstFile} or
  * {@link com.digitalreasoning.rstwriter.Heading}. The definition can be placed anywhere in a reStructuredText file but the identifier (the text inside the ||)
@@ -31,4 +33,14 @@ public class SubstitutionDefinition implements Definition {
     public String write(){
         return text;
     }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        out.append(text);
+    }
+
+    @Override
+    public SubstitutionDefinition freeze(){
+        return this;
+    }
 }
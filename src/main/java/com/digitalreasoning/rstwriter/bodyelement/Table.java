@@ -1,8 +1,10 @@
 package com.digitalreasoning.rstwriter.bodyelement;
 
 import com.digitalreasoning.rstwriter.Inline;
+import com.digitalreasoning.rstwriter.InlineTemplate;
 import com.digitalreasoning.rstwriter.RstBodyElement;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.LinkedList;
 
@@ -275,6 +277,16 @@ public class Table implements RstBodyElement {
         return text;
     }
 
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        out.append(text);
+    }
+
+    @Override
+    public Table freeze(){
+        return this;
+    }
+
     @Override
     public String toString(){ return text; }
 
@@ -338,6 +350,56 @@ public class Table implements RstBodyElement {
             return this;
         }
 
+        /**
+         * Adds a cell to this table Builder
+         * @param template the compiled value to be placed in the cell
+         * @param inlines the Inline arguments of the template
+         * @return this builder with the cell added
+         */
+        public Builder addCell(InlineTemplate template, Inline... inlines){
+            currentRow.add(template.format(inlines));
+            borderRow.add(BORDER_BOTH);
+            return this;
+        }
+
+        /**
+         * Adds a cell to this table Builder
+         * @param template the compiled value to be placed in the cell
+         * @param borderType the bordering style for this cell
+         * @param inlines the Inline arguments of the template
+         * @return this builder with the cell added
+         */
+        public Builder addCell(InlineTemplate template, int borderType, Inline... inlines){
+            currentRow.add(template.format(inlines));
+            borderRow.add(borderType);
+            return this;
+        }
+
+        /**
+         * Adds a cell to this table Builder. A table lays out its cells from their text when it is built, so the Inline
+         * is rendered when the cell is added rather than when the table is written.
+         * @param content the value to be placed in the cell
+         * @return this builder with the cell added
+         */
+        public Builder addCell(Inline content){
+            currentRow.add(content.write());
+            borderRow.add(BORDER_BOTH);
+            return this;
+        }
+
+        /**
+         * Adds a cell to this table Builder. A table lays out its cells from their text when it is built, so the Inline
+         * is rendered when the cell is added rather than when the table is written.
+         * @param content the value to be placed in the cell
+         * @param borderType the bordering style for this cell
+         * @return this builder with the cell added
+         */
+        public Builder addCell(Inline content, int borderType){
+            currentRow.add(content.write());
+            borderRow.add(borderType);
+            return this;
+        }
+
         /**
          * Adds a cell to this table Builder
          * @param element the content to be placed in the cell
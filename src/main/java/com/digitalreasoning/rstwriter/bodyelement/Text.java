@@ -0,0 +1,31 @@
+package com.digitalreasoning.rstwriter.bodyelement;
+
+import com.digitalreasoning.rstwriter.RstBodyElement;
+
+import java.io.IOException;
+
+/**
+ * A piece of already formatted text held by the lists, written exactly as it was given
+ */
+final class Text implements RstBodyElement {
+    private final String text;
+
+    Text(String text){
+        this.text = text;
+    }
+
+    @Override
+    public String write(){
+        return text;
+    }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        out.append(text);
+    }
+
+    @Override
+    public Text freeze(){
+        return this;
+    }
+}
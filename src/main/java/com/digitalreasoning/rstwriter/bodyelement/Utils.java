@@ -1,9 +1,14 @@
 package com.digitalreasoning.rstwriter.bodyelement;
 
 import com.digitalreasoning.rstwriter.Inline;
+import com.digitalreasoning.rstwriter.RstBodyElement;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 /**
  * The Utils class provides two constants useful in determining output. Namely, the indent standard and the escape character.
+ * It also provides the bridge from the streaming {@code writeTo} render path to the String returned by {@code write}.
  */
 public class Utils
 {
@@ -19,53 +24,142 @@ public class Utils
      */
     public static final char ESCAPE = '$';
 
-    protected static String inlineParse(String sequence, Inline... inlines){
-        String build = "";
-        char[] stream = sequence.toCharArray();
-        boolean escapeMode = false;
-        int inlineIndex = 0;
-        for(int i = 0; i<stream.length; i++){
-            if(escapeMode){
-                if(stream[i] == 'I'){
-                    if(inlines == null || inlineIndex >= inlines.length){
-                        throw new IllegalArgumentException("Too few Inline arguments given");
-                    }
-                    build += inlines[inlineIndex].write();
-                    inlineIndex++;
-                    if(i < stream.length-1 && stream[i+1] != ' '){
-                        build += "\\ ";
-                    }
-                    escapeMode = false;
-                }
-                else{
-                    throw new IllegalArgumentException("Unrecognized escape sequence: " + ESCAPE + stream[i]);
-                }
+    /**
+     * Renders the body element through its {@code writeTo} method into a String
+     * @param element the element to render
+     * @return the reStructuredText generated by the element
+     */
+    public static String write(RstBodyElement element){
+        StringBuilder builder = new StringBuilder();
+        try{
+            element.writeTo(builder);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Checks whether the text has nothing but new lines, if anything
+     */
+    static boolean onlyNewLines(CharSequence text){
+        for(int i = 0; i < text.length(); i++){
+            if(text.charAt(i) != '\n'){
+                return false;
             }
-            else{
-                if(stream[i] == ESCAPE){
-                    if(i == stream.length-1){
-                        throw new IllegalArgumentException("Invalid escape at the end of the string: " + sequence);
-                    }
-                    else if(i < stream.length-1 && stream[i+1] == ESCAPE){
-                        build += ESCAPE;
-                        i++;
-                        continue;
-                    }
-                    else if(i>0 && stream[i-1]!= ' '){
-                        build += "\\ ";
-                    }
-                    escapeMode = true;
-                }
-                else{
-                    build += stream[i];
-                }
+        }
+        return true;
+    }
+
+    /**
+     * Processes the inline markup escapes of the parameter text: each {@code $I} is replaced by the next Inline
+     * argument, separated from adjacent text by an escaped space where needed, and each {@code $$} by a single '$'.
+     * Text without any '$' is returned as it is.
+     * @param sequence the text to be processed
+     * @param inlines the Inline arguments, one per {@code $I} in the text
+     * @return the processed text
+     * @throws IllegalArgumentException if the text has an unknown or unfinished escape, or if the number of Inline
+     * arguments doesn't match the number of {@code $I}
+     */
+    protected static String inlineParse(String sequence, Inline... inlines){
+        if(sequence.indexOf(ESCAPE) == -1){
+            if(inlines != null && inlines.length != 0){
+                throw new IllegalArgumentException("Too many inline arguments given");
             }
+            return sequence;
         }
-        if(inlines != null && inlineIndex != inlines.length){
+        StringBuilder builder = new StringBuilder(sequence.length() + 16 * (inlines == null ? 0 : inlines.length));
+        try{
+            inlineParse(sequence, builder, inlines);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Processes the inline markup escapes of the parameter text into the parameter sink in a single pass. Runs of text
+     * between escapes are appended as they are; see {@link #inlineParse(String, Inline...)} for the escapes.
+     * @param sequence the text to be processed
+     * @param out the sink the processed text is appended to
+     * @param inlines the Inline arguments, one per {@code $I} in the text
+     * @throws IOException if the sink throws an IOException
+     * @throws IllegalArgumentException if the text has an unknown or unfinished escape, or if the number of Inline
+     * arguments doesn't match the number of {@code $I}; the text before the error may have been appended
+     */
+    public static void inlineParse(CharSequence sequence, Appendable out, Inline... inlines) throws IOException {
+        int count = inlineScan(sequence, out, index -> {
+            if(inlines == null || index >= inlines.length){
+                throw new IllegalArgumentException("Too few Inline arguments given");
+            }
+            inlines[index].writeTo(out);
+        });
+        if(inlines != null && count != inlines.length){
             throw new IllegalArgumentException("Too many inline arguments given");
         }
-        return build;
     }
 
+    /**
+     * Scans the inline markup escapes of the parameter text in a single pass, appending the text between escapes to the
+     * parameter sink with each {@code $$} replaced by a single '$', and calling the parameter handler for each
+     * {@code $I}. The escaped space separating an Inline from adjacent text is appended before and after the call, so
+     * the handler only has to supply the Inline, or note where it goes.
+     * @param sequence the text to be scanned
+     * @param out the sink the text is appended to
+     * @param handler called for each {@code $I}, in order
+     * @return the number of {@code $I} in the text
+     * @throws IOException if the sink or the handler throws an IOException
+     * @throws IllegalArgumentException if the text has an unknown or unfinished escape; the text before the error may
+     * have been appended
+     */
+    public static int inlineScan(CharSequence sequence, Appendable out, InlineHandler handler) throws IOException {
+        int length = sequence.length();
+        int inlineIndex = 0;
+        //start of the text not yet appended
+        int start = 0;
+        for(int i = 0; i < length; i++){
+            if(sequence.charAt(i) != ESCAPE){
+                continue;
+            }
+            if(i == length - 1){
+                throw new IllegalArgumentException("Invalid escape at the end of the string: " + sequence);
+            }
+            char next = sequence.charAt(i + 1);
+            if(next == ESCAPE){
+                out.append(sequence, start, i + 1);
+                i++;
+                start = i + 1;
+                continue;
+            }
+            if(next != 'I'){
+                throw new IllegalArgumentException("Unrecognized escape sequence: " + ESCAPE + next);
+            }
+            out.append(sequence, start, i);
+            if(i > 0 && sequence.charAt(i - 1) != ' '){
+                out.append("\\ ");
+            }
+            handler.inline(inlineIndex);
+            inlineIndex++;
+            i++;
+            if(i < length - 1 && sequence.charAt(i + 1) != ' '){
+                out.append("\\ ");
+            }
+            start = i + 1;
+        }
+        out.append(sequence, start, length);
+        return inlineIndex;
+    }
 
+    /**
+     * Called by {@link #inlineScan(CharSequence, Appendable, InlineHandler)} for each {@code $I} of the text
+     */
+    @FunctionalInterface
+    public interface InlineHandler {
+        /**
+         * Handles an Inline argument, once the text before it has been appended
+         * @param index the index of the {@code $I} in the text, starting at 0
+         * @throws IOException if the sink of the scan throws an IOException
+         */
+        void inline(int index) throws IOException;
+    }
 }
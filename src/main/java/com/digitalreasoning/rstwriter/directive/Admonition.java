@@ -5,6 +5,8 @@ import com.digitalreasoning.rstwriter.Inline;
 import com.digitalreasoning.rstwriter.bodyelement.Paragraph;
 import com.digitalreasoning.rstwriter.RstBodyElement;
 
+import java.io.IOException;
+
 /**
  * The Admonition class is an implementation of many of the reStructuredText "Admonition" directives. Those defined in this
  * class are attention, caution, danger, error, hint, important, note, tip, and warning. These directives take no
@@ -45,6 +47,10 @@ public class Admonition implements Directive {
         directive = new BaseDirective(type.getValue());
     }
 
+    private Admonition(Admonition admonition){
+        directive = admonition.directive.freeze();
+    }
+
     /**
      * Creates an admonition of the given type with the given text
      * @param type the type of admonition to be used
@@ -81,4 +87,14 @@ public class Admonition implements Directive {
     public String write(){
         return directive.write();
     }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        directive.writeTo(out);
+    }
+
+    @Override
+    public Admonition freeze(){
+        return new Admonition(this);
+    }
 }
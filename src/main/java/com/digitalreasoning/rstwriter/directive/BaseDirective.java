@@ -1,10 +1,17 @@
 package com.digitalreasoning.rstwriter.directive;
 
 import com.digitalreasoning.rstwriter.Directive;
+import com.digitalreasoning.rstwriter.Escaper;
 import com.digitalreasoning.rstwriter.Inline;
 import com.digitalreasoning.rstwriter.bodyelement.Paragraph;
 import com.digitalreasoning.rstwriter.RstBodyElement;
 import com.digitalreasoning.rstwriter.bodyelement.FieldList;
+import com.digitalreasoning.rstwriter.bodyelement.IndentingAppendable;
+import com.digitalreasoning.rstwriter.bodyelement.Utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
 import static com.digitalreasoning.rstwriter.bodyelement.Utils.INDENT;
 
 /**
@@ -28,10 +35,17 @@ import static com.digitalreasoning.rstwriter.bodyelement.Utils.INDENT;
  * }
  */
 public class BaseDirective implements Directive {
+    private static final String FIRST_CONTENT_PREFIX = "\n" + INDENT;
+    //'$' starts an inline markup escape, so it is escaped by doubling it
+    private static final Escaper DOLLARS = Escaper.getBuilder('$').addChars("$").build();
+
     private String directiveType;
     private String arguments;
     private FieldList options;
-    private String content;
+    /**
+     * the elements of the content section, kept frozen and only indented when the directive is written
+     */
+    private ArrayList<RstBodyElement> content;
 
     /**
      * Creates a directive with the name provided by the parameter
@@ -41,7 +55,18 @@ public class BaseDirective implements Directive {
         this.directiveType = directiveType;
         arguments = "";
         options = new FieldList();
-        content = "";
+        content = new ArrayList<>();
+    }
+
+    /**
+     * Creates a copy of the parameter directive; the copy doesn't see later modifications of the original
+     * @param directive the directive to be copied
+     */
+    protected BaseDirective(BaseDirective directive){
+        this.directiveType = directive.directiveType;
+        this.arguments = directive.arguments;
+        this.options = directive.options.freeze();
+        this.content = new ArrayList<>(directive.content);
     }
 
     /**
@@ -102,50 +127,60 @@ public class BaseDirective implements Directive {
      * @return this BaseDirective with the element added to the content
      */
     public BaseDirective addContent(RstBodyElement element){
-        if(content.length() != 0){
-            while(!content.endsWith("\n\n")){
-                content += "\n";
-            }
-        }
-        content += element.write() + "\n";
+        content.add(element.freeze());
         return this;
     }
 
     @Override
     public String write(){
-        return ".. " + directiveType + ":: " + writeBlock();
+        return Utils.write(this);
+    }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        out.append(".. ").append(directiveType).append(":: ");
+        writeBlock(out);
     }
 
-    private String writeBlock(){
-        String text = "";
+    @Override
+    public BaseDirective freeze(){
+        return new BaseDirective(this);
+    }
+
+    private void writeBlock(Appendable out) throws IOException {
         String[] args = arguments.split("\n");
         if(args.length == 1){
-            text += arguments + "\n";
+            out.append(arguments).append('\n');
         }
         else {
             for (String arg : args) {
                 if (!arg.equals(""))
-                    text += INDENT + arg + "\n";
+                    out.append(INDENT).append(arg).append('\n');
             }
         }
-        String[] optns = options.write().split("\n");
-        for(String opt : optns){
-            if(!opt.equals(""))
-            {
-                text += INDENT + opt + "\n";
-            }
+        IndentingAppendable indented = IndentingAppendable.of(out);
+        indented.pushSkippingBlankLines(INDENT);
+        options.writeTo(indented);
+        indented.pop();
+        if(content.isEmpty()){
+            return;
         }
-        if(!content.trim().equals("")) {
-            text += "\n";
-            String[] contents = content.split("\n");
-            for (String con : contents) {
-                text += INDENT + con + "\n";
+        //the content is separated from the options by a blank line, which is left out along with a content that is
+        //only whitespace. Elements are separated by at least one blank line
+        indented.pushUnlessWhitespace(FIRST_CONTENT_PREFIX, INDENT);
+        for(int i = 0; i < content.size(); i++){
+            if(i > 0){
+                while(indented.trailingNewlines() < 2){
+                    indented.append('\n');
+                }
             }
+            content.get(i).writeTo(indented);
+            indented.append('\n');
         }
-        return text;
+        indented.pop();
     }
 
     protected static String escapeString(String str){
-        return str.replaceAll("\\$", "\\$\\$");
+        return DOLLARS.escape(str);
     }
 }
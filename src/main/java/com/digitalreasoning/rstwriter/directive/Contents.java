@@ -1,13 +1,15 @@
 package com.digitalreasoning.rstwriter.directive;
 
 import com.digitalreasoning.rstwriter.Directive;
+import com.digitalreasoning.rstwriter.bodyelement.Utils;
+
+import java.io.IOException;
 
 /**
  * The Contents directive makes a table of contents at the specified place in the files using the names of the file's
  * {@link com.digitalreasoning.rstwriter.Heading}s. This directive takes a title argument and a depth option but no content.
  */
 public class Contents implements Directive {
-    private BaseDirective directive;
     private String title = "";
     private int depth = 2;
 
@@ -15,7 +17,11 @@ public class Contents implements Directive {
      * creates an empty table of contents directive
      */
     public Contents(){
-        directive = new BaseDirective("contents");
+    }
+
+    private Contents(Contents contents){
+        this.title = contents.title;
+        this.depth = contents.depth;
     }
 
     /**
@@ -40,8 +46,16 @@ public class Contents implements Directive {
 
     @Override
     public String write(){
-        directive.addArgument(title);
-        directive.addOption("depth", "" + depth);
-        return directive.write();
+        return Utils.write(this);
+    }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        new BaseDirective("contents").addArgument(title).addOption("depth", "" + depth).writeTo(out);
+    }
+
+    @Override
+    public Contents freeze(){
+        return new Contents(this);
     }
 }
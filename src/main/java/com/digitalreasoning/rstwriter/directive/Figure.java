@@ -4,7 +4,9 @@ import com.digitalreasoning.rstwriter.Directive;
 import com.digitalreasoning.rstwriter.bodyelement.Paragraph;
 import com.digitalreasoning.rstwriter.RstBodyElement;
 import com.digitalreasoning.rstwriter.Inline;
+import com.digitalreasoning.rstwriter.bodyelement.Utils;
 
+import java.io.IOException;
 import java.util.HashMap;
 
 /**
@@ -44,6 +46,13 @@ public class Figure implements Directive {
         image = new Image(imagePath);
     }
 
+    private Figure(Figure figure){
+        directive = figure.directive.freeze();
+        image = figure.image.freeze();
+        figwidth = figure.figwidth;
+        figAlign = figure.figAlign;
+    }
+
     /**
      * sets the height of the image
      * @param height the height of the image
@@ -149,18 +158,29 @@ public class Figure implements Directive {
 
     @Override
     public String write(){
+        return Utils.write(this);
+    }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        BaseDirective figure = new BaseDirective(directive);
         if(figAlign != null) {
-            directive.addOption("align", figAlign);
+            figure.addOption("align", figAlign);
         }
         if(figwidth == FIGWIDTH_IMAGE){
-            directive.addOption("figwidth", "image");
+            figure.addOption("figwidth", "image");
         }
         else if(figwidth >= 0){
-            directive.addOption("figwidth", "" + figwidth);
+            figure.addOption("figwidth", "" + figwidth);
         }
         for(HashMap.Entry<String,String> entry : image.getOptionMap().entrySet()){
-            directive.addOption(entry.getKey(), entry.getValue());
+            figure.addOption(entry.getKey(), entry.getValue());
         }
-        return directive.write();
+        figure.writeTo(out);
+    }
+
+    @Override
+    public Figure freeze(){
+        return new Figure(this);
     }
 }
@@ -1,7 +1,9 @@
 package com.digitalreasoning.rstwriter.directive;
 
 import com.digitalreasoning.rstwriter.Directive;
+import com.digitalreasoning.rstwriter.bodyelement.Utils;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
@@ -31,6 +33,11 @@ public class Image implements Directive {
         options = new TreeMap<>();
     }
 
+    private Image(Image image){
+        directive = image.directive;
+        options = new TreeMap<>(image.options);
+    }
+
     /**
      * sets the height of the image
      * @param height the height of the image
@@ -97,10 +104,21 @@ public class Image implements Directive {
 
     @Override
     public String write(){
+        return Utils.write(this);
+    }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        BaseDirective image = new BaseDirective(directive);
         for(Map.Entry<String, String> entry : options.entrySet()){
-            directive.addOption(entry.getKey(), entry.getValue());
+            image.addOption(entry.getKey(), entry.getValue());
         }
-        return directive.write();
+        image.writeTo(out);
+    }
+
+    @Override
+    public Image freeze(){
+        return new Image(this);
     }
 
 }
@@ -2,6 +2,8 @@ package com.digitalreasoning.rstwriter.directive;
 
 import com.digitalreasoning.rstwriter.Directive;
 
+import java.io.IOException;
+
 /**
  * The Replace directive is used exclusively in substitution definitions and replaces the identifier with the specified content.
  * @see com.digitalreasoning.rstwriter.bodyelement.SubstitutionDefinition
@@ -23,4 +25,14 @@ public class Replace implements Directive {
     public String write(){
         return directive.write();
     }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        directive.writeTo(out);
+    }
+
+    @Override
+    public Replace freeze(){
+        return this;
+    }
 }
@@ -0,0 +1,147 @@
+package com.digitalreasoning.rstwriter.directive;
+
+import com.digitalreasoning.rstwriter.Directive;
+import com.digitalreasoning.rstwriter.RstBodyElement;
+import com.digitalreasoning.rstwriter.bodyelement.Utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.digitalreasoning.rstwriter.directive.BaseDirective.escapeString;
+
+/**
+ * The TocTree directive is Sphinx's table of contents spanning several documents. Its content lists the documents, one
+ * per line, by their names relative to the source directory (without the .rst extension), optionally with an explicit
+ * title. This directive takes maxdepth and caption options but no arguments.
+ * {@code
+ * .. toctree::
+ *    :maxdepth: 2
+ *
+ *    intro
+ *    Reference <api/reference>
+ * }
+ */
+public class TocTree implements Directive {
+    private int maxDepth = -1;
+    private String caption;
+    private final List<String> entries;
+
+    /**
+     * Creates an empty toctree directive
+     */
+    public TocTree(){
+        entries = new ArrayList<>();
+    }
+
+    private TocTree(TocTree tocTree){
+        this.maxDepth = tocTree.maxDepth;
+        this.caption = tocTree.caption;
+        this.entries = new ArrayList<>(tocTree.entries);
+    }
+
+    /**
+     * Sets the depth of the headings of each document shown in the tree
+     * @param maxDepth the maximum depth of the tree
+     * @return this toctree with the depth set
+     */
+    public TocTree setMaxDepth(int maxDepth){
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Sets the caption shown above the tree
+     * @param caption the caption of the tree
+     * @return this toctree with the caption set
+     */
+    public TocTree setCaption(String caption){
+        this.caption = caption;
+        return this;
+    }
+
+    /**
+     * Adds a document to the tree, shown with its own title
+     * @param document the name of the document, relative to the source directory or, when starting with '/',
+     *                 absolute, and without extension
+     * @return this toctree with the document added
+     */
+    public TocTree addEntry(String document){
+        entries.add(document);
+        return this;
+    }
+
+    /**
+     * Adds a document to the tree, shown with the given title instead of its own
+     * @param title the title shown for the document; '&lt;' and '&gt;' are replaced by parentheses
+     * @param document the name of the document, relative to the source directory or, when starting with '/',
+     *                 absolute, and without extension
+     * @return this toctree with the document added
+     */
+    public TocTree addEntry(String title, String document){
+        entries.add(title.replace('<', '(').replace('>', ')') + " <" + document + ">");
+        return this;
+    }
+
+    /**
+     * Returns the number of documents in the tree
+     * @return the number of entries
+     */
+    public int size(){
+        return entries.size();
+    }
+
+    @Override
+    public String write(){
+        return Utils.write(this);
+    }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        BaseDirective directive = new BaseDirective("toctree");
+        if(maxDepth >= 0){
+            directive.addOption("maxdepth", "" + maxDepth);
+        }
+        if(caption != null){
+            directive.addOption("caption", escapeString(caption));
+        }
+        if(!entries.isEmpty()){
+            directive.addContent(new Entries(entries));
+        }
+        directive.writeTo(out);
+    }
+
+    @Override
+    public TocTree freeze(){
+        return new TocTree(this);
+    }
+
+    //the entries of the tree, one per line and without inline markup processing
+    private static final class Entries implements RstBodyElement {
+        private final List<String> entries;
+
+        private Entries(List<String> entries){
+            this.entries = entries;
+        }
+
+        @Override
+        public String write(){
+            return Utils.write(this);
+        }
+
+        @Override
+        public void writeTo(Appendable out) throws IOException {
+            for(int i = 0; i < entries.size(); i++){
+                if(i > 0){
+                    out.append('\n');
+                }
+                out.append(entries.get(i));
+            }
+        }
+
+        @Override
+        public Entries freeze(){
+            return this;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.digitalreasoning.rstwriter.directive;
 
 import com.digitalreasoning.rstwriter.Directive;
 
+import java.io.IOException;
+
 /**
  * The Unicode directive is used exclusively in substitution definitions and replaces the identifier with the character
  * designated by a given Unicode character code
@@ -23,4 +25,14 @@ public class Unicode implements Directive {
     public String write(){
         return directive.write();
     }
+
+    @Override
+    public void writeTo(Appendable out) throws IOException {
+        directive.writeTo(out);
+    }
+
+    @Override
+    public Unicode freeze(){
+        return this;
+    }
 }
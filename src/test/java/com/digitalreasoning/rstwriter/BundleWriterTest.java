@@ -0,0 +1,137 @@
+package com.digitalreasoning.rstwriter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.*;
+
+public class BundleWriterTest {
+
+    private static List<RstFile> files(){
+        List<RstFile> files = new ArrayList<>();
+        files.add(RstFile.getBuilder("first").addParagraph("caf\u00e9").build());
+        files.add(RstFile.getBuilder("second").addHeading(Heading.getBuilder("Heading").addParagraph("text").build())
+                .build());
+        char[] longName = new char[120];
+        Arrays.fill(longName, 'n');
+        files.add(RstFile.getBuilder(new String(longName)).addParagraph("long name").build());
+        files.add(RstFile.getBuilder("r\u00e9sum\u00e9").build());
+        return files;
+    }
+
+    @Test
+    public void zipTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BundleWriter writer = BundleWriter.getBuilder(out).setCompressionLevel(9).build();
+        writer.addAll(files());
+        writer.finish();
+        assertEquals(4, writer.getEntries());
+
+        Map<String, String> entries = new LinkedHashMap<>();
+        try(ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()), StandardCharsets.UTF_8)){
+            ZipEntry entry;
+            while((entry = zip.getNextEntry()) != null){
+                entries.put(entry.getName(), new String(readAll(zip), StandardCharsets.UTF_8));
+            }
+        }
+        assertEntries(entries);
+
+        try{
+            writer.add(files().get(0));
+            fail();
+        }catch(IllegalStateException e){
+            //expected: the archive is finished
+        }
+    }
+
+    @Test(expected = ZipException.class)
+    public void duplicateZipEntryTest() throws IOException {
+        BundleWriter writer = BundleWriter.getBuilder(new ByteArrayOutputStream()).build();
+        writer.add(files().get(0));
+        writer.add(files().get(0));
+    }
+
+    @Test
+    public void tarGzTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long bytes = 0;
+        try(BundleWriter writer = BundleWriter.getBuilder(out).setFormat(BundleWriter.Format.TAR_GZ)
+                .setCompressionLevel(1).build()){
+            for(RstFile file : files()){
+                bytes += writer.add(file);
+            }
+            assertEquals(bytes, writer.getBytes());
+        }
+
+        Map<String, String> entries = new LinkedHashMap<>();
+        try(DataInputStream tar = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())))){
+            byte[] header = new byte[512];
+            String paxPath = null;
+            while(true){
+                tar.readFully(header);
+                if(header[0] == 0){
+                    break;
+                }
+                int checksum = 0;
+                for(int i = 0; i < 512; i++){
+                    checksum += i >= 148 && i < 156 ? ' ' : header[i] & 0xFF;
+                }
+                assertEquals(checksum, Integer.parseInt(field(header, 148, 6), 8));
+                int size = Integer.parseInt(field(header, 124, 11), 8);
+                byte[] content = new byte[size];
+                tar.readFully(content);
+                tar.skipBytes((512 - size % 512) % 512);
+                if(header[156] == 'x'){
+                    String record = new String(content, StandardCharsets.UTF_8);
+                    assertEquals(size, Integer.parseInt(record.substring(0, record.indexOf(' '))));
+                    paxPath = record.substring(record.indexOf("path=") + 5, record.length() - 1);
+                    continue;
+                }
+                entries.put(paxPath != null ? paxPath : field(header, 0, 100), new String(content, StandardCharsets.UTF_8));
+                paxPath = null;
+            }
+        }
+        assertEntries(entries);
+    }
+
+    private static void assertEntries(Map<String, String> entries){
+        List<RstFile> files = files();
+        assertEquals(files.size(), entries.size());
+        for(RstFile file : files){
+            assertEquals(file.write(), entries.get(file.getContentBase().getTitle() + ".rst"));
+        }
+    }
+
+    private static String field(byte[] header, int offset, int length){
+        int end = offset;
+        while(end < offset + length && header[end] != 0){
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int n;
+        while((n = in.read(buffer)) != -1){
+            bytes.write(buffer, 0, n);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,89 @@
+package com.digitalreasoning.rstwriter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ChunkedWriterTest {
+
+    //records the number of bytes received at each flush
+    private static class FlushRecorder extends ByteArrayOutputStream {
+        private final List<Integer> flushes = new ArrayList<>();
+
+        @Override
+        public void flush(){
+            flushes.add(size());
+        }
+    }
+
+    private static RstFile manual(){
+        RstFile.Builder file = RstFile.getBuilder("manual").addParagraph("Preface");
+        for(int i = 0; i < 3; i++){
+            Heading.Builder chapter = Heading.getBuilder("Chapter " + i).addParagraph("Intro " + i);
+            for(int j = 0; j < 2; j++){
+                chapter.addSubHeading(Heading.getBuilder("Section " + i + "." + j).addParagraph("caf\u00e9 " + j).build());
+            }
+            file.addHeading(chapter.build());
+        }
+        return file.build();
+    }
+
+    @Test
+    public void sectionFlushTest() throws IOException {
+        RstFile file = manual();
+        FlushRecorder out = new FlushRecorder();
+        List<Long> progress = new ArrayList<>();
+        List<List<String>> paths = new ArrayList<>();
+        ChunkedWriter writer = ChunkedWriter.getBuilder().setListener((bytes, path) -> {
+            progress.add(bytes);
+            paths.add(path);
+        }).build();
+
+        long bytes = writer.write(file, out);
+        byte[] expected = file.write().getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(expected, out.toByteArray());
+        assertEquals(expected.length, bytes);
+        //one flush per chapter, and one at the end
+        assertEquals(4, out.flushes.size());
+        assertEquals(expected.length, (int) out.flushes.get(3));
+        for(int i = 0; i < 4; i++){
+            assertEquals((long) out.flushes.get(i), (long) progress.get(i));
+            assertEquals(Collections.emptyList(), paths.get(i));
+        }
+        String text = file.write();
+        assertEquals(text.substring(0, text.indexOf("##########\nChapter 1")).getBytes(StandardCharsets.UTF_8).length,
+                (int) out.flushes.get(0));
+    }
+
+    @Test
+    public void byteFlushTest() throws IOException {
+        RstFile file = manual();
+        FlushRecorder out = new FlushRecorder();
+        List<List<String>> paths = new ArrayList<>();
+        ChunkedWriter writer = ChunkedWriter.getBuilder().setFlushBytes(40).setFlushAfterSections(false)
+                .setListener((bytes, path) -> paths.add(path)).build();
+
+        long bytes = writer.write(file, out);
+        assertEquals(file.write().getBytes(StandardCharsets.UTF_8).length, bytes);
+        assertTrue(out.flushes.size() > 5);
+        for(int i = 1; i < out.flushes.size() - 1; i++){
+            assertTrue(out.flushes.get(i) - out.flushes.get(i - 1) >= 40);
+        }
+        assertTrue(paths.contains(Arrays.asList("Chapter 1", "Section 1.0")));
+        assertEquals(Collections.emptyList(), paths.get(paths.size() - 1));
+        try{
+            paths.get(0).add("x");
+            fail();
+        }catch(UnsupportedOperationException e){
+            //expected: the path is a snapshot
+        }
+    }
+}
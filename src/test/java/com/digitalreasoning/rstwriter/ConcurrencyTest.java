@@ -0,0 +1,94 @@
+package com.digitalreasoning.rstwriter;
+
+import com.digitalreasoning.rstwriter.directive.Admonition;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class ConcurrencyTest {
+
+    private static RstFile manual(int sections){
+        RstFile.Builder file = RstFile.getBuilder("manual").addParagraph("Introduction");
+        for(int i = 0; i < sections; i++){
+            Heading.Builder heading = Heading.getBuilder("Section " + i).addLinkTarget("section" + i);
+            for(int j = 0; j < i % 7; j++){
+                heading.openSubHeading("Subsection " + i + "." + j)
+                        .addParagraph("Text of $I " + j, Inline.bold("subsection"))
+                        .addBodyElement(RstBodyElement.bulletList("one\ntwo\nthree"))
+                        .openSubHeading("Detail").addTransition()
+                        .addDirective(new Admonition(Admonition.Type.NOTE, "note " + i)).closeSubHeading()
+                        .closeSubHeading();
+            }
+            file.addHeading(heading.build());
+        }
+        return file.build();
+    }
+
+    @Test
+    public void parallelWriteTest() throws IOException {
+        RstFile file = manual(200);
+        String expected = file.write();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try{
+            for(int threshold : new int[]{0, 1, 5, 10, Integer.MAX_VALUE}){
+                assertEquals("threshold " + threshold, expected, file.write(pool, threshold));
+            }
+            assertEquals(expected, file.write(pool));
+            StringBuilder out = new StringBuilder();
+            file.writeTo(out, pool);
+            assertEquals(expected, out.toString());
+        }finally{
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void sharedHeadingStressTest() throws Exception {
+        Heading shared = Heading.getBuilder("Shared").addParagraph("Boilerplate")
+                .openSubHeading("Terms").addParagraph("Legal text").closeSubHeading().build();
+        RstFile top = RstFile.getBuilder("top").addHeading(shared).build();
+        RstFile nested = RstFile.getBuilder("nested").addHeading(Heading.getBuilder("Chapter")
+                .addSubHeading(shared).openSubHeading("Appendix").addSubHeading(shared).closeSubHeading().build())
+                .build();
+        String expectedTop = "#######\nShared\n#######\n\nBoilerplate\n\n******\nTerms\n******\n\nLegal text\n\n";
+        String expectedNested = "########\nChapter\n########\n\n" +
+                "*******\nShared\n*******\n\nBoilerplate\n\nTerms\n======\n\nLegal text\n\n" +
+                "*********\nAppendix\n*********\n\n" +
+                "Shared\n=======\n\nBoilerplate\n\nTerms\n------\n\nLegal text\n\n";
+        assertEquals(expectedTop, top.write());
+        assertEquals(expectedTop, shared.write());
+        assertEquals(expectedNested, nested.write());
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try{
+            List<Future<Boolean>> results = new ArrayList<>();
+            for(int i = 0; i < 64; i++){
+                results.add(executor.submit(() -> {
+                    for(int j = 0; j < 500; j++){
+                        if(!expectedTop.equals(top.write()) || !expectedNested.equals(nested.write())
+                                || !expectedTop.equals(shared.write())
+                                || !expectedNested.equals(nested.write(pool, 1))){
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for(Future<Boolean> result : results){
+                assertTrue("Concurrent write produced the wrong text", result.get());
+            }
+        }finally{
+            executor.shutdown();
+            pool.shutdown();
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.digitalreasoning.rstwriter;
 
 import com.digitalreasoning.rstwriter.directive.Admonition;
+import com.digitalreasoning.rstwriter.directive.BaseDirective;
 import com.digitalreasoning.rstwriter.directive.Figure;
 import com.digitalreasoning.rstwriter.directive.Image;
+import com.digitalreasoning.rstwriter.directive.TocTree;
 import org.junit.Test;
 
 import java.util.ArrayList;
@@ -27,6 +29,17 @@ public class DirectiveTest {
         assertEquals(result, a.write());
     }
 
+    @Test
+    public void whitespaceContentTest(){
+        //content that is only whitespace is left out, along with the blank line before it
+        assertEquals(".. note:: \n", new BaseDirective("note").addContent("   ").write());
+        assertEquals(".. note:: \n", new Admonition(Admonition.Type.NOTE, "  \n  ").write());
+        assertEquals(".. note:: \n    :a:    b\n", new BaseDirective("note").addOption("a", "b").addContent("  \n\t").write());
+        //whitespace before other content is kept
+        assertEquals(".. note:: \n\n       \n    \n    text\n",
+                new BaseDirective("note").addContent("   ").addContent("text").write());
+    }
+
     @Test
     public void argsAndOptionsTest(){
         Image i = new Image("http://image.jpeg");
@@ -40,6 +53,18 @@ public class DirectiveTest {
         assertEquals(result, i.write());
     }
 
+    @Test
+    public void tocTreeTest(){
+        TocTree tree = new TocTree();
+        assertEquals(".. toctree:: \n", tree.write());
+        tree.setMaxDepth(2).setCaption("Cost in $").addEntry("intro").addEntry("A <b> c", "/api/$ref");
+        TocTree frozen = tree.freeze();
+        tree.addEntry("later");
+        assertEquals(".. toctree:: \n    :maxdepth:    2\n    :caption:    Cost in $\n\n    intro\n    A (b) c </api/$ref>\n",
+                frozen.write());
+        assertEquals(3, tree.size());
+    }
+
     @Test
     public void fullDirectiveTest(){
         Figure f = new Figure("http://img.png").setImageTarget("http://google.com").setImageAlternateText("Alt")
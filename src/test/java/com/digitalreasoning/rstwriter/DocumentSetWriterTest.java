@@ -0,0 +1,151 @@
+package com.digitalreasoning.rstwriter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DocumentSetWriterTest {
+
+    private static Path directory(String name) throws IOException {
+        Path dir = Files.createDirectories(Paths.get("target/test/" + name));
+        try(Stream<Path> files = Files.list(dir)){
+            for(Path file : (Iterable<Path>) files::iterator){
+                Files.delete(file);
+            }
+        }
+        return dir;
+    }
+
+    private static RstFile page(int n){
+        return RstFile.getBuilder("page" + n).addParagraph("Page " + n)
+                .addHeading(Heading.getBuilder("Caf\u00e9 " + n).addBodyElement(RstBodyElement.bulletList("a\nb")).build())
+                .build();
+    }
+
+    @Test
+    public void writeTest() throws Exception {
+        Path dir = directory("set");
+        DocumentSetWriter writer = DocumentSetWriter.getBuilder(dir).setThreads(4).setMaxPending(8).build();
+        DocumentSetWriter.Summary summary = writer.write(IntStream.range(0, 200).mapToObj(DocumentSetWriterTest::page));
+        assertEquals(200, summary.getWritten());
+        assertEquals(0, summary.getSkipped());
+        assertTrue(summary.getFailures().isEmpty());
+        long bytes = 0;
+        for(int i = 0; i < 200; i++){
+            byte[] expected = page(i).write().getBytes(StandardCharsets.UTF_8);
+            assertArrayEquals(expected, Files.readAllBytes(dir.resolve("page" + i + ".rst")));
+            bytes += expected.length;
+        }
+        assertEquals(bytes, summary.getBytes());
+        assertTrue(summary.getFilesPerSecond() > 0);
+        assertTrue(summary.getBytesPerSecond() > 0);
+
+        SkipUnchanged mode = SkipUnchanged.comparingContent();
+        writer = DocumentSetWriter.getBuilder(dir).setThreads(2).setSkipUnchanged(mode).build();
+        summary = writer.write(IntStream.range(0, 210).mapToObj(DocumentSetWriterTest::page)::iterator);
+        assertEquals(10, summary.getWritten());
+        assertEquals(200, summary.getSkipped());
+        assertEquals(10, mode.getWritten());
+    }
+
+    @Test
+    public void failureTest() throws Exception {
+        Path dir = directory("failures");
+        RstBodyElement broken = new RstBodyElement() {
+            @Override
+            public String write(){
+                throw new IllegalStateException("broken element");
+            }
+
+            @Override
+            public RstBodyElement freeze(){
+                return this;
+            }
+        };
+        Stream<RstFile> files = IntStream.range(0, 20).mapToObj(i -> i % 5 == 0
+                ? RstFile.getBuilder("broken" + i).addBodyElement(broken).build() : page(i));
+        DocumentSetWriter.Summary summary = DocumentSetWriter.getBuilder(dir).setThreads(3).build().write(files);
+        assertEquals(16, summary.getWritten());
+        assertEquals(4, summary.getFailures().size());
+        for(DocumentSetWriter.Failure failure : summary.getFailures()){
+            assertTrue(failure.getPath().getFileName().toString().startsWith("broken"));
+            assertEquals("broken element", failure.getCause().getMessage());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void badTitleTest() throws Exception {
+        Path dir = directory("bad-titles");
+        Files.deleteIfExists(dir.resolveSibling("escaped.rst"));
+        //titles that can't be a path, or that lead out of the directory, fail without holding on to their permits
+        Stream<RstFile> files = IntStream.range(0, 12).mapToObj(i -> i % 3 == 0
+                ? RstFile.getBuilder("bad\u0000" + i).build()
+                : i % 3 == 1 ? RstFile.getBuilder("../escaped").build() : page(i));
+        DocumentSetWriter.Summary summary = DocumentSetWriter.getBuilder(dir).setThreads(1).setMaxPending(2).build()
+                .write(files);
+        assertEquals(4, summary.getWritten());
+        assertEquals(8, summary.getFailures().size());
+        for(DocumentSetWriter.Failure failure : summary.getFailures()){
+            if(failure.getPath() == null){
+                assertTrue(failure.getCause() instanceof InvalidPathException);
+            }
+            else{
+                assertTrue(failure.getCause().getMessage().contains("is outside of"));
+            }
+        }
+        assertFalse(Files.exists(dir.resolveSibling("escaped.rst")));
+    }
+
+    @Test
+    public void backpressureTest() throws Exception {
+        Path dir = directory("backpressure");
+        AtomicInteger produced = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger maxOutstanding = new AtomicInteger();
+        RstBodyElement counting = new RstBodyElement() {
+            @Override
+            public String write(){
+                done.incrementAndGet();
+                return "counted\n";
+            }
+
+            @Override
+            public RstBodyElement freeze(){
+                return this;
+            }
+        };
+        Iterable<RstFile> files = () -> new Iterator<RstFile>() {
+            @Override
+            public boolean hasNext(){
+                return produced.get() < 500;
+            }
+
+            @Override
+            public RstFile next(){
+                int n = produced.incrementAndGet();
+                maxOutstanding.accumulateAndGet(n - done.get(), Math::max);
+                return RstFile.getBuilder("file" + n).addBodyElement(counting).build();
+            }
+        };
+        DocumentSetWriter.Summary summary = DocumentSetWriter.getBuilder(dir).setThreads(2).setMaxPending(4).build()
+                .write(files);
+        assertEquals(500, summary.getWritten());
+        assertTrue("Too many pending files: " + maxOutstanding.get(), maxOutstanding.get() <= 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void directoryTest(){
+        DocumentSetWriter.getBuilder(Paths.get("target/test/missing-directory")).build();
+    }
+}
@@ -0,0 +1,81 @@
+package com.digitalreasoning.rstwriter;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class EscaperTest {
+
+    @Test
+    public void escapeTest(){
+        Escaper escaper = Escaper.getBuilder('\\').addChars("|").addDoubledChars("*").build();
+        String plain = "nothing to escape * here";
+        assertSame(plain, escaper.escape(plain));
+        assertFalse(escaper.needsEscaping(plain));
+        assertEquals("a \\| b \\** c \\*** d", escaper.escape("a | b ** c *** d"));
+        assertEquals("\\**\\**", escaper.escape("****"));
+        assertEquals("> \\|x\\|", escaper.escape("|x|", new StringBuilder("> ")).toString());
+
+        assertEquals("\\\\path\\_to\\*file\\`\\|", Escaper.RST_MARKUP.escape("\\path_to*file`|"));
+        assertEquals("\u00e9\\* \ud83d\ude00", Escaper.RST.escape("\u00e9* \ud83d\ude00"));
+        try{
+            Escaper.getBuilder('\\').addChars("\u00e9");
+            fail();
+        }catch(IllegalArgumentException e){}
+    }
+
+    @Test
+    public void inlineEscapeTest(){
+        //the escaping of each kind of markup matches the regular expressions it replaced
+        Random random = new Random(7);
+        String alphabet = "ab *`|$_\\\u00e9";
+        for(int n = 0; n < 20000; n++){
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(12);
+            for(int i = 0; i < length; i++){
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String str = builder.toString();
+            assertEquals(str.replaceAll(Pattern.quote("*"), Matcher.quoteReplacement("\\*"))
+                    .replaceAll(Pattern.quote("`"), Matcher.quoteReplacement("\\`")), Inline.escapeRst(str));
+            assertEquals("*" + str.replaceAll(Pattern.quote("*"), Matcher.quoteReplacement("\\*")) + "*",
+                    Inline.italics(str).write());
+            assertEquals("**" + str.replaceAll(Pattern.quote("**"), Matcher.quoteReplacement("\\**")) + "**",
+                    Inline.bold(str).write());
+            assertEquals("``" + str.replaceAll("``", Matcher.quoteReplacement("\\``")) + "``",
+                    Inline.literal(str).write());
+            assertEquals("`" + str.replaceAll("`", Matcher.quoteReplacement("\\`")) + " <u>`_",
+                    Inline.link(str, "u").write());
+            assertEquals("|" + str.replaceAll(Pattern.quote("|"), Matcher.quoteReplacement("\\|")) + "|",
+                    Inline.substitution(str).write());
+            assertEquals(":sub:`" + str.replaceAll("`", Matcher.quoteReplacement("\\`")) + "`",
+                    Inline.role("sub", str).write());
+        }
+    }
+
+    @Test
+    public void escapingTest() throws Exception {
+        //escaping text appended in pieces gives the same text as escaping it at once
+        Escaper escaper = Escaper.getBuilder('\\').addChars("|").addDoubledChars("*`").build();
+        Random random = new Random(11);
+        String alphabet = "a *`|";
+        for(int n = 0; n < 5000; n++){
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(12);
+            for(int i = 0; i < length; i++){
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String str = builder.toString();
+            StringBuilder out = new StringBuilder();
+            Escaper.Escaping escaping = escaper.escaping(out);
+            int split = length == 0 ? 0 : random.nextInt(length + 1);
+            escaping.append(str, 0, split).append(str.substring(split));
+            escaping.finish();
+            assertEquals(escaper.escape(str), out.toString());
+            assertEquals(escaper.escape(str).length(), escaper.escapedLength(str));
+        }
+    }
+}
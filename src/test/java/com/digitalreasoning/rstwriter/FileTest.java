@@ -2,16 +2,43 @@ package com.digitalreasoning.rstwriter;
 
 import com.digitalreasoning.rstwriter.bodyelement.BulletList;
 import com.digitalreasoning.rstwriter.bodyelement.FieldList;
+import com.digitalreasoning.rstwriter.bodyelement.LinkDefinition;
 import com.digitalreasoning.rstwriter.bodyelement.Table;
 import com.digitalreasoning.rstwriter.directive.Admonition;
 import com.digitalreasoning.rstwriter.directive.Contents;
 import com.digitalreasoning.rstwriter.directive.Image;
 import com.digitalreasoning.rstwriter.directive.Replace;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousByteChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -103,6 +130,372 @@ public class FileTest {
         }
     }
 
+    @Test
+    public void streamedFileTest() throws IOException {
+        Heading h = Heading.getBuilder("heading").addParagraph("Paragraph").addLinkTarget("link")
+                .addDefinition(new LinkDefinition("def", "dest"))
+                .addBodyElement(RstBodyElement.fieldList().addItem("field", "value\nmore"))
+                .addDirective(new Admonition(Admonition.Type.NOTE, "note"))
+                .openSubHeading("sub").addTransition().closeSubHeading().build();
+        RstFile file = RstFile.getBuilder("streamed").addParagraph("intro").addHeading(h).build();
+
+        StringBuilder out = new StringBuilder();
+        new FileWriter(file).writeTo(out);
+        assertEquals(file.write(), out.toString());
+
+        out = new StringBuilder();
+        h.writeTo(out);
+        assertEquals(h.write(), out.toString());
+    }
+
+    @Test
+    public void renderedLengthTest(){
+        Table t = Table.getBuilder().addCell("caf\u00e9").addCell(new BulletList("\u20ac\nitem")).nextRow()
+                .addCell("\ud83d\ude00").addCell(new Admonition(Admonition.Type.TIP, "tip")).build();
+        Heading h = Heading.getBuilder("H\u00e9ading").addBodyElement(t).addLinkTarget("target")
+                .openSubHeading("sub").addBodyElement(RstBodyElement.numberedList("one\ntwo")
+                        .addSubList("three")).closeSubHeading().build();
+        RstFile file = RstFile.getBuilder("measured").addParagraph("\u00fcber").addHeading(h).build();
+
+        RenderedLength length = file.renderedLength();
+        assertEquals(file.write().length(), length.getChars());
+        assertEquals(file.write().getBytes(StandardCharsets.UTF_8).length, length.getUtf8Bytes());
+
+        length = h.renderedLength();
+        assertEquals(h.write().length(), length.getChars());
+        assertEquals(h.write().getBytes(StandardCharsets.UTF_8).length, length.getUtf8Bytes());
+
+        length = RenderedLength.of(t);
+        assertEquals(t.write().length(), length.getChars());
+        assertEquals(t.write().getBytes(StandardCharsets.UTF_8).length, length.getUtf8Bytes());
+    }
+
+    @Test
+    public void utf8OutputTest() throws IOException {
+        StringBuilder longText = new StringBuilder();
+        for(int i = 0; i < 3000; i++){
+            longText.append("w\u00f6rd \u20ac ");
+        }
+        longText.append("\ud83d\ude00 lone \ud83d and \ude00 end \ud83d");
+        Heading h = Heading.getBuilder("H\u00e9ading").addParagraph(longText.toString())
+                .addBodyElement(Table.getBuilder().addCell("caf\u00e9").addCell("\ud83d\ude00").build()).build();
+        RstFile file = RstFile.getBuilder("encoded").addParagraph("\u00fcber").addHeading(h).build();
+        byte[] expected = file.write().getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        assertEquals(expected.length, file.writeTo(stream));
+        assertArrayEquals(expected, stream.toByteArray());
+
+        stream.reset();
+        assertEquals(expected.length, new FileWriter(file).writeTo(stream));
+        assertArrayEquals(expected, stream.toByteArray());
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) file.renderedLength().getUtf8Bytes());
+        assertEquals(expected.length, file.writeTo(buffer));
+        assertFalse(buffer.hasRemaining());
+        byte[] put = new byte[expected.length];
+        buffer.flip();
+        buffer.get(put);
+        assertArrayEquals(expected, put);
+
+        byte[] heading = h.write().getBytes(StandardCharsets.UTF_8);
+        buffer = ByteBuffer.allocate(heading.length + 2).put((byte) '>');
+        assertEquals(heading.length, h.writeTo(buffer));
+        assertEquals(1, buffer.remaining());
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void utf8OverflowTest(){
+        RstFile file = RstFile.getBuilder("overflow").addParagraph("more than eight bytes").build();
+        file.writeTo(ByteBuffer.allocate(8));
+    }
+
+    @Test
+    public void channelWriteTest() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < 500; i++){
+            text.append("caf\u00e9 \u20ac \ud83d\ude00 ");
+        }
+        RstFile file = RstFile.getBuilder("channel").addParagraph(text.toString())
+                .addHeading(Heading.getBuilder("Heading").addBodyElement(RstBodyElement.bulletList("one\ntwo")).build())
+                .build();
+        Path dir = Paths.get("target/test");
+        Files.createDirectories(dir);
+        Path path = dir.resolve("channel.rst");
+
+        FileWriter writer = new FileWriter(file, 16);
+        for(Charset charset : new Charset[]{StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, StandardCharsets.UTF_16}){
+            byte[] expected = file.write().getBytes(charset);
+            assertEquals(expected.length, writer.writeTo(path, charset));
+            assertArrayEquals(expected, Files.readAllBytes(path));
+        }
+
+        byte[] expected = file.write().getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected.length, new FileWriter(file).writeTo(path, StandardCharsets.UTF_8));
+        assertEquals(expected.length, new FileWriter(file).writeTo(path, StandardCharsets.UTF_8, StandardOpenOption.APPEND));
+        assertEquals(2 * expected.length, Files.size(path));
+        Files.delete(path);
+    }
+
+    @Test
+    public void skipUnchangedTest() throws IOException {
+        Path dir = Files.createDirectories(Paths.get("target/test/incremental"));
+        Path path = dir.resolve("page.rst");
+        Path sidecar = dir.resolve("page.rst" + SkipUnchanged.SIDECAR_EXTENSION);
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(sidecar);
+        RstFile first = RstFile.getBuilder("page").addParagraph("caf\u00e9").build();
+        RstFile second = RstFile.getBuilder("page").addParagraph("caf\u00e9 au lait").build();
+
+        SkipUnchanged content = SkipUnchanged.comparingContent();
+        assertTrue(new FileWriter(first).writeTo(path, StandardCharsets.UTF_8, content));
+        Files.setLastModifiedTime(path, FileTime.fromMillis(0));
+        assertFalse(new FileWriter(first).writeTo(path, StandardCharsets.UTF_8, content));
+        assertEquals(0, Files.getLastModifiedTime(path).toMillis());
+        assertTrue(new FileWriter(second).writeTo(path, StandardCharsets.UTF_8, content));
+        assertArrayEquals(second.write().getBytes(StandardCharsets.UTF_8), Files.readAllBytes(path));
+        //the same text in another charset is different content
+        assertTrue(new FileWriter(second).writeTo(path, StandardCharsets.ISO_8859_1, content));
+        assertEquals(3, content.getWritten());
+        assertEquals(1, content.getSkipped());
+        assertFalse(Files.exists(sidecar));
+
+        SkipUnchanged sidecars = SkipUnchanged.usingSidecarDigests();
+        assertTrue(new FileWriter(first).writeTo(path, StandardCharsets.UTF_8, sidecars));
+        assertTrue(Files.exists(sidecar));
+        assertFalse(new FileWriter(first).writeTo(path, StandardCharsets.UTF_8, sidecars));
+        assertTrue(new FileWriter(second).writeTo(path, StandardCharsets.UTF_8, sidecars));
+        assertArrayEquals(second.write().getBytes(StandardCharsets.UTF_8), Files.readAllBytes(path));
+        assertEquals(2, sidecars.getWritten());
+        assertEquals(1, sidecars.getSkipped());
+
+        //no temporary files are left behind
+        try(Stream<Path> files = Files.list(dir)){
+            assertEquals(2, files.count());
+        }
+        Files.delete(path);
+        Files.delete(sidecar);
+    }
+
+    @Test
+    public void skipUnchangedRendersOnceTest() throws IOException {
+        Path dir = Files.createDirectories(Paths.get("target/test/incremental-once"));
+        Path path = dir.resolve("page.rst");
+        Files.deleteIfExists(path);
+        int[] renders = {0};
+        String[] text = {"first\n"};
+        //immutable, so it is rendered on each write of the file
+        RstBodyElement counted = new RstBodyElement(){
+            @Override
+            public String write(){
+                renders[0]++;
+                return text[0];
+            }
+
+            @Override
+            public RstBodyElement freeze(){
+                return this;
+            }
+        };
+        RstFile file = RstFile.getBuilder("page").addBodyElement(counted).build();
+        int afterBuild = renders[0];
+
+        SkipUnchanged mode = SkipUnchanged.comparingContent();
+        assertTrue(new FileWriter(file).writeTo(path, StandardCharsets.UTF_8, mode));
+        assertEquals(afterBuild + 1, renders[0]);
+        assertFalse(new FileWriter(file).writeTo(path, StandardCharsets.UTF_8, mode));
+        assertEquals(afterBuild + 2, renders[0]);
+        text[0] = "second\n";
+        assertTrue(new FileWriter(file).writeTo(path, StandardCharsets.UTF_8, mode));
+        assertEquals(afterBuild + 3, renders[0]);
+        assertArrayEquals(file.write().getBytes(StandardCharsets.UTF_8), Files.readAllBytes(path));
+        try(Stream<Path> files = Files.list(dir)){
+            assertEquals(1, files.count());
+        }
+        Files.delete(path);
+    }
+
+    @Test
+    public void skipUnchangedPermissionsTest() throws IOException {
+        Path dir = Files.createDirectories(Paths.get("target/test/permissions"));
+        Assume.assumeNotNull(Files.getFileAttributeView(dir, PosixFileAttributeView.class));
+        Path plain = dir.resolve("plain.rst");
+        Path path = dir.resolve("page.rst");
+        Files.deleteIfExists(plain);
+        Files.deleteIfExists(path);
+        RstFile first = RstFile.getBuilder("page").addParagraph("first").build();
+        RstFile second = RstFile.getBuilder("page").addParagraph("second").build();
+
+        //a new file gets the same permissions as one written without skipping
+        new FileWriter(first).writeTo(plain, StandardCharsets.UTF_8);
+        assertTrue(new FileWriter(first).writeTo(path, StandardCharsets.UTF_8, SkipUnchanged.comparingContent()));
+        assertEquals(Files.getPosixFilePermissions(plain), Files.getPosixFilePermissions(path));
+
+        //a replaced file keeps its permissions
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-rw-r--");
+        Files.setPosixFilePermissions(path, permissions);
+        assertTrue(new FileWriter(second).writeTo(path, StandardCharsets.UTF_8, SkipUnchanged.comparingContent()));
+        assertEquals(permissions, Files.getPosixFilePermissions(path));
+
+        //the temporary file of a file with a name of 250 bytes is within the limit of 255
+        StringBuilder name = new StringBuilder();
+        for(int i = 0; i < 246; i++){
+            name.append('n');
+        }
+        Path longName = dir.resolve(name + ".rst");
+        assertTrue(new FileWriter(first).writeTo(longName, StandardCharsets.UTF_8, SkipUnchanged.comparingContent()));
+        assertArrayEquals(first.write().getBytes(StandardCharsets.UTF_8), Files.readAllBytes(longName));
+        Files.delete(plain);
+        Files.delete(path);
+        Files.delete(longName);
+    }
+
+    @Test
+    public void mappedWriteTest() throws IOException {
+        RstFile.Builder builder = RstFile.getBuilder("mapped");
+        for(int i = 0; i < 100; i++){
+            builder.addHeading(Heading.getBuilder("Section " + i).addParagraph("caf\u00e9 \ud83d\ude00 " + i).build());
+        }
+        RstFile file = builder.build();
+        byte[] expected = file.write().getBytes(StandardCharsets.UTF_8);
+        Path path = Files.createDirectories(Paths.get("target/test")).resolve("mapped.rst");
+        Files.write(path, new byte[expected.length * 2]);
+
+        FileWriter writer = new FileWriter(file);
+        assertEquals(expected.length, writer.writeMapped(path));
+        assertArrayEquals(expected, Files.readAllBytes(path));
+        //windows smaller than the staging buffer, split in the middle of encoded chars
+        assertEquals(expected.length, writer.writeMapped(path, expected.length, 1001));
+        assertArrayEquals(expected, Files.readAllBytes(path));
+        //without a length the file is streamed
+        assertEquals(expected.length, writer.writeMapped(path, null));
+        assertArrayEquals(expected, Files.readAllBytes(path));
+        try{
+            writer.writeMapped(path, expected.length - 1, 1001);
+            fail();
+        }catch(IOException e){
+            //expected: the measured length is wrong
+        }
+        Files.delete(path);
+    }
+
+    @Test
+    public void asyncWriteTest() throws Exception {
+        RstFile.Builder builder = RstFile.getBuilder("async");
+        for(int i = 0; i < 200; i++){
+            builder.addHeading(Heading.getBuilder("Section " + i).addParagraph("caf\u00e9 " + i).build());
+        }
+        RstFile file = builder.build();
+        byte[] expected = file.write().getBytes(StandardCharsets.UTF_8);
+        FileWriter writer = new FileWriter(file, 64);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try{
+            Path path = Files.createDirectories(Paths.get("target/test")).resolve("async.rst");
+            assertEquals(expected.length, (long) writer.writeAsync(path, StandardCharsets.UTF_8, executor).get());
+            assertArrayEquals(expected, Files.readAllBytes(path));
+            Files.delete(path);
+
+            ChunkedChannel channel = new ChunkedChannel();
+            assertEquals(expected.length, (long) writer.writeAsync(channel, StandardCharsets.UTF_8, executor).get());
+            assertArrayEquals(expected, channel.bytes.toByteArray());
+
+            try{
+                writer.writeAsync(Paths.get("target/test/missing/async.rst"), StandardCharsets.UTF_8, executor).get();
+                fail();
+            }catch(ExecutionException e){
+                assertTrue(e.getCause() instanceof NoSuchFileException);
+            }
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void asyncWriteGatedTest() throws Exception {
+        RstFile.Builder builder = RstFile.getBuilder("async");
+        for(int i = 0; i < 20; i++){
+            builder.addHeading(Heading.getBuilder("Section " + i).addParagraph("text " + i).build());
+        }
+        RstFile file = builder.build();
+        byte[] expected = file.write().getBytes(StandardCharsets.UTF_8);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try{
+            //the calling thread gets its future back while the writes can't complete, and opens the gate itself
+            CompletableFuture<Void> gate = new CompletableFuture<>();
+            GatedChannel channel = new GatedChannel(gate);
+            CompletableFuture<Long> write = new FileWriter(file, 64).writeAsync(channel, StandardCharsets.UTF_8, executor);
+            assertFalse(write.isDone());
+            gate.complete(null);
+            assertEquals(expected.length, (long) write.get(30, TimeUnit.SECONDS));
+            assertArrayEquals(expected, ((ChunkedChannel) channel).bytes.toByteArray());
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+
+    //completes its writes once the gate is open
+    private static class GatedChannel extends ChunkedChannel {
+        private final CompletableFuture<Void> gate;
+
+        private GatedChannel(CompletableFuture<Void> gate){
+            this.gate = gate;
+        }
+
+        @Override
+        public Future<Integer> write(ByteBuffer src){
+            FutureTask<Integer> write = new FutureTask<>(() -> super.put(src));
+            gate.thenRun(write);
+            return write;
+        }
+    }
+
+    //accepts at most 7 bytes per write, so callers must keep writing until each chunk is drained
+    private static class ChunkedChannel implements AsynchronousByteChannel {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        @Override
+        public Future<Integer> write(ByteBuffer src){
+            return CompletableFuture.completedFuture(put(src));
+        }
+
+        private int put(ByteBuffer src){
+            int n = Math.min(7, src.remaining());
+            for(int i = 0; i < n; i++){
+                bytes.write(src.get());
+            }
+            return n;
+        }
+
+        @Override
+        public <A> void write(ByteBuffer src, A attachment, CompletionHandler<Integer, ? super A> handler){
+            handler.completed(put(src), attachment);
+        }
+
+        @Override
+        public Future<Integer> read(ByteBuffer dst){
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <A> void read(ByteBuffer dst, A attachment, CompletionHandler<Integer, ? super A> handler){
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isOpen(){
+            return true;
+        }
+
+        @Override
+        public void close(){
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bufferSizeTest(){
+        new FileWriter(RstFile.getBuilder("small").build(), 8);
+    }
+
     private void diff(String file1, String file2){
         try{
             Scanner f1 = new Scanner(new File(file1));
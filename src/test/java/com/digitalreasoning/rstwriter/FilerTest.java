@@ -0,0 +1,183 @@
+package com.digitalreasoning.rstwriter;
+
+import org.junit.Test;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.FilerException;
+import javax.lang.model.element.Element;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class FilerTest {
+
+    //records the resources created, their originating elements and their bytes, refusing to create one twice. The
+    //resources with a failing name are created, but fail when written. Their Writers encode in the Filer's encoding
+    private static class RecordingFiler implements Filer {
+        private final Map<String, ByteArrayOutputStream> resources = new LinkedHashMap<>();
+        private final Map<String, Element[]> origins = new LinkedHashMap<>();
+        private final Set<String> failing = new HashSet<>();
+        private Charset encoding = StandardCharsets.UTF_8;
+
+        @Override
+        public FileObject createResource(JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName,
+                                         Element... originatingElements) throws IOException {
+            String key = location.getName() + ":" + pkg + "/" + relativeName;
+            if(resources.containsKey(key)){
+                throw new FilerException("Attempt to reopen a file for path " + key);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            resources.put(key, bytes);
+            origins.put(key, originatingElements);
+            return new SimpleJavaFileObject(URI.create("mem:///" + relativeName), JavaFileObject.Kind.OTHER){
+                @Override
+                public OutputStream openOutputStream(){
+                    if(failing.contains(relativeName.toString())){
+                        return new OutputStream(){
+                            @Override
+                            public void write(int b) throws IOException {
+                                throw new IOException("Disk full");
+                            }
+                        };
+                    }
+                    return bytes;
+                }
+
+                @Override
+                public Writer openWriter(){
+                    return new OutputStreamWriter(openOutputStream(), encoding);
+                }
+            };
+        }
+
+        @Override
+        public JavaFileObject createSourceFile(CharSequence name, Element... originatingElements){
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public JavaFileObject createClassFile(CharSequence name, Element... originatingElements){
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileObject getResource(JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName){
+            throw new UnsupportedOperationException();
+        }
+
+        private String text(String key){
+            return new String(resources.get(key).toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Element element(){
+        return (Element) Proxy.newProxyInstance(Element.class.getClassLoader(), new Class<?>[]{Element.class},
+                (proxy, method, args) -> null);
+    }
+
+    @Test
+    public void filerOverloadTest() throws IOException {
+        RecordingFiler filer = new RecordingFiler();
+        RstFile file = RstFile.getBuilder("api").addParagraph("caf\u00e9").build();
+        Element origin = element();
+        long bytes = new FileWriter(file).writeTo(filer, StandardLocation.SOURCE_OUTPUT, "com.example.docs", origin);
+
+        String key = "SOURCE_OUTPUT:com.example.docs/api.rst";
+        assertEquals(file.write(), filer.text(key));
+        assertEquals(file.write().getBytes(StandardCharsets.UTF_8).length, bytes);
+        assertArrayEquals(new Element[]{origin}, filer.origins.get(key));
+
+        new FileWriter(file).writeTo(filer);
+        assertEquals(file.write(), filer.text("CLASS_OUTPUT:/api.rst"));
+    }
+
+    @Test
+    public void filerEncodingTest() throws IOException {
+        RecordingFiler filer = new RecordingFiler();
+        filer.encoding = StandardCharsets.ISO_8859_1;
+        RstFile file = RstFile.getBuilder("api").addParagraph("caf\u00e9").build();
+        //the Filer's encoding is kept by the overload without a location, and UTF-8 is written by the other one
+        new FileWriter(file).writeTo(filer);
+        assertArrayEquals(file.write().getBytes(StandardCharsets.ISO_8859_1),
+                filer.resources.get("CLASS_OUTPUT:/api.rst").toByteArray());
+        new FileWriter(file).writeTo(filer, StandardLocation.SOURCE_OUTPUT, "");
+        assertEquals(file.write(), filer.text("SOURCE_OUTPUT:/api.rst"));
+    }
+
+    @Test
+    public void batchTest() throws IOException {
+        RecordingFiler filer = new RecordingFiler();
+        FilerBatch batch = FilerBatch.getBuilder(filer).setPackage("docs").build();
+        Element first = element();
+        for(int i = 0; i < 10; i++){
+            batch.add(RstFile.getBuilder("page" + i).addParagraph("Page " + i).build(), first);
+        }
+        assertEquals(10, batch.size());
+        assertTrue(batch.write() > 0);
+        assertEquals(0, batch.size());
+        assertEquals(10, filer.resources.size());
+        for(int i = 0; i < 10; i++){
+            String key = "CLASS_OUTPUT:docs/page" + i + ".rst";
+            assertEquals(RstFile.getBuilder("page" + i).addParagraph("Page " + i).build().write(), filer.text(key));
+            assertSame(first, filer.origins.get(key)[0]);
+        }
+
+        try{
+            batch.add(RstFile.getBuilder("page3").build());
+            fail();
+        }catch(IllegalArgumentException e){
+            //expected: the resource was already written by this batch
+        }
+
+        //a resource created elsewhere fails the batch at that file, keeping it and the following ones queued
+        filer.createResource(StandardLocation.CLASS_OUTPUT, "docs", "taken.rst");
+        batch.add(RstFile.getBuilder("fresh").build()).add(RstFile.getBuilder("taken").build())
+                .add(RstFile.getBuilder("later").build());
+        try{
+            batch.write();
+            fail();
+        }catch(FilerException e){
+            assertEquals(2, batch.size());
+        }
+    }
+
+    @Test
+    public void batchWriteFailureTest() throws IOException {
+        RecordingFiler filer = new RecordingFiler();
+        filer.failing.add("broken.rst");
+        FilerBatch batch = FilerBatch.getBuilder(filer).build();
+        batch.add(RstFile.getBuilder("broken").addParagraph("text").build())
+                .add(RstFile.getBuilder("after").addParagraph("text").build());
+        try{
+            batch.write();
+            fail();
+        }catch(FilerException e){
+            fail();
+        }catch(IOException e){
+            //expected: the resource was created, but its stream failed
+        }
+        //the broken file's resource can't be created again, so only the file after it is retried
+        assertEquals(1, batch.size());
+        assertTrue(batch.write() > 0);
+        assertEquals(0, batch.size());
+        assertEquals(RstFile.getBuilder("after").addParagraph("text").build().write(),
+                filer.text("CLASS_OUTPUT:/after.rst"));
+    }
+}
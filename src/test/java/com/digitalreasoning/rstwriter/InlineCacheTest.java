@@ -0,0 +1,85 @@
+package com.digitalreasoning.rstwriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.digitalreasoning.rstwriter.bodyelement.Paragraph;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class InlineCacheTest {
+
+    @Test
+    public void cacheTest(){
+        InlineCache cache = new InlineCache(100);
+        Inline literal = cache.literal("java.util.List");
+        assertSame(literal, cache.literal("java.util.List"));
+        assertEquals(Inline.literal("java.util.List").write(), literal.write());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        //the same text marked up differently is cached separately
+        assertEquals(Inline.bold("a**b").write(), cache.bold("a**b").write());
+        assertEquals(Inline.italics("a*b").write(), cache.italics("a*b").write());
+        assertEquals(Inline.link("n`").write(), cache.link("n`").write());
+        assertEquals(Inline.link("n`", "u").write(), cache.link("n`", "u").write());
+        assertEquals(Inline.substitution("s|").write(), cache.substitution("s|").write());
+        assertEquals(Inline.role("sub", "`x").write(), cache.role("sub", "`x").write());
+        assertEquals(Inline.role("sup", "`x").write(), cache.role("sup", "`x").write());
+        assertEquals(Inline.text("*t").write(), cache.text("*t").write());
+        assertEquals(9, cache.size());
+        assertEquals(9, cache.getMisses());
+
+        //cached Inlines are separated from adjacent text like the Inlines they stand for
+        assertEquals(new Paragraph("a$I, $I", Inline.bold("b"), Inline.text("c")).write(),
+                new Paragraph("a$I, $I", cache.bold("b"), cache.text("c")).write());
+        assertEquals(Inline.sequence(Inline.text("x"), Inline.literal("y")).write(),
+                Inline.sequence(cache.text("x"), cache.literal("y")).write());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        assertSame(Inline.cached(), Inline.cached());
+        assertEquals(InlineCache.DEFAULT_MAX_SIZE, Inline.cached().getMaxSize());
+    }
+
+    @Test
+    public void evictionTest() throws Exception {
+        InlineCache cache = new InlineCache(50);
+        for(int i = 0; i < 1000; i++){
+            cache.literal("value" + i);
+        }
+        assertTrue(cache.size() <= 50);
+
+        //the values used most recently are kept
+        InlineCache small = new InlineCache(1);
+        Inline first = small.literal("first");
+        small.literal("second");
+        assertNotSame(first, small.literal("first"));
+        assertEquals(3, small.getMisses());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try{
+            List<Future<?>> futures = new ArrayList<>();
+            for(int t = 0; t < 4; t++){
+                futures.add(executor.submit(() -> {
+                    for(int i = 0; i < 20000; i++){
+                        String name = "Class" + (i % 40);
+                        assertEquals("``" + name + "``", cache.literal(name).write());
+                    }
+                }));
+            }
+            for(Future<?> future : futures){
+                future.get();
+            }
+        }finally{
+            executor.shutdown();
+        }
+        assertTrue(cache.size() <= 50);
+        assertEquals(1000 + 80000, cache.getHits() + cache.getMisses());
+    }
+}
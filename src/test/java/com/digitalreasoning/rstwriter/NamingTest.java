@@ -0,0 +1,135 @@
+package com.digitalreasoning.rstwriter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class NamingTest {
+
+    @Test
+    public void sanitizeTest(){
+        assertEquals("a_b_c", NamingStrategy.sanitize("a/b\\c"));
+        assertEquals("_hidden", NamingStrategy.sanitize(".hidden"));
+        assertEquals("__", NamingStrategy.sanitize(".."));
+        assertEquals("what_", NamingStrategy.sanitize("what?"));
+        assertEquals("tab_line_", NamingStrategy.sanitize("tab\tline\n"));
+        assertEquals("name__", NamingStrategy.sanitize("name. "));
+        assertEquals("_CON", NamingStrategy.sanitize("CON"));
+        assertEquals("_lpt1.txt", NamingStrategy.sanitize("lpt1.txt"));
+        assertEquals("_", NamingStrategy.sanitize(""));
+        assertEquals("caf\u00e9 \ud83d\ude00", NamingStrategy.sanitize("caf\u00e9 \ud83d\ude00"));
+        assertEquals("_", NamingStrategy.sanitize("\ud83d"));
+
+        char[] title = new char[300];
+        Arrays.fill(title, '\u00e9');
+        assertEquals(100, NamingStrategy.sanitize(new String(title)).length());
+        assertEquals("x.rst", NamingStrategy.sanitized().pathOf("x"));
+        assertEquals("a/b.rst", NamingStrategy.titles().pathOf("a/b"));
+    }
+
+    @Test
+    public void shardingTest(){
+        NamingStrategy sharded = NamingStrategy.sharded(NamingStrategy.sanitized(), 2);
+        String path = sharded.pathOf("Some/Title");
+        assertTrue(path, path.matches("[0-9a-f]{2}/[0-9a-f]{2}/Some_Title\\.rst"));
+        assertEquals(path, sharded.pathOf("Some/Title"));
+        //"Some_Title" sanitizes to the same name but lands in other directories
+        assertNotEquals(path, sharded.pathOf("Some_Title"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shardLevelsTest(){
+        NamingStrategy.sharded(NamingStrategy.sanitized(), 0);
+    }
+
+    @Test
+    public void manifestTest() throws IOException {
+        FileManifest manifest = new FileManifest(NamingStrategy.sanitized());
+        assertEquals("a_b.rst", manifest.assign("a/b"));
+        assertEquals("a_b-2.rst", manifest.assign("a:b"));
+        assertEquals("A_B-3.rst", manifest.assign("A_B"));
+        assertEquals("a_b-4.rst", manifest.assign("a/b"));
+        assertEquals("tab_.rst", manifest.assign("tab\t"));
+        assertEquals("a_b.rst", manifest.getPath("a/b"));
+        assertEquals("a_b-2.rst", manifest.getPath("a:b"));
+        assertNull(manifest.getPath("missing"));
+        assertEquals(5, manifest.size());
+
+        Path file = Files.createDirectories(Paths.get("target/test")).resolve("manifest.tsv");
+        manifest.writeTo(file);
+        FileManifest loaded = FileManifest.load(file, NamingStrategy.sanitized());
+        assertEquals(5, loaded.size());
+        assertEquals("a_b-2.rst", loaded.getPath("a:b"));
+        assertEquals("tab_.rst", loaded.getPath("tab\t"));
+        assertEquals("a_b-5.rst", loaded.assign("a\\b"));
+        //the saved titles keep their paths, duplicates in the order they were saved
+        assertEquals("a_b.rst", loaded.assign("a/b"));
+        assertEquals("a_b-2.rst", loaded.assign("a:b"));
+        assertEquals("a_b-4.rst", loaded.assign("a/b"));
+        assertEquals("a_b-6.rst", loaded.assign("a/b"));
+        assertEquals("tab_.rst", loaded.assign("tab\t"));
+        assertEquals(7, loaded.size());
+
+        loaded.writeTo(file);
+        FileManifest reloaded = FileManifest.load(file, NamingStrategy.sanitized());
+        assertEquals("A_B-3.rst", reloaded.assign("A_B"));
+        assertEquals("a_b-5.rst", reloaded.assign("a\\b"));
+        assertEquals("a_b.rst", reloaded.assign("a/b"));
+        assertEquals("a_b-4.rst", reloaded.assign("a/b"));
+        assertEquals("a_b-6.rst", reloaded.assign("a/b"));
+        assertEquals("a_b-7.rst", reloaded.assign("a/b"));
+        assertEquals(8, reloaded.size());
+
+        Files.write(file, "not a manifest\n".getBytes(StandardCharsets.UTF_8));
+        try{
+            FileManifest.load(file, NamingStrategy.sanitized());
+            fail();
+        }catch(IOException e){
+            //expected: the header is missing
+        }
+        Files.delete(file);
+    }
+
+    @Test
+    public void documentSetTest() throws Exception {
+        Path dir = Paths.get("target/test/sharded");
+        if(Files.exists(dir)){
+            try(Stream<Path> files = Files.walk(dir)){
+                for(Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator){
+                    Files.delete(p);
+                }
+            }
+        }
+        Files.createDirectories(dir);
+        FileManifest manifest = new FileManifest(NamingStrategy.sharded(NamingStrategy.sanitized(), 1));
+        DocumentSetWriter writer = DocumentSetWriter.getBuilder(dir).setThreads(3).setManifest(manifest).build();
+        DocumentSetWriter.Summary summary = writer.write(Stream.of(
+                RstFile.getBuilder("a/b").addParagraph("first").build(),
+                RstFile.getBuilder("a/b").addParagraph("second").build(),
+                RstFile.getBuilder("..").addParagraph("dots").build()));
+        assertEquals(3, summary.getWritten());
+        assertTrue(summary.getFailures().isEmpty());
+        assertEquals(3, manifest.size());
+        String first = manifest.getPath("a/b");
+        assertTrue(first.endsWith("/a_b.rst"));
+        assertEquals(RstFile.getBuilder("a/b").addParagraph("first").build().write(),
+                new String(Files.readAllBytes(dir.resolve(first)), StandardCharsets.UTF_8));
+        assertTrue(Files.exists(dir.resolve(first.replace(".rst", "-2.rst"))));
+        assertTrue(Files.exists(dir.resolve(manifest.getPath(".."))));
+
+        //unsanitized titles can't escape the directory
+        writer = DocumentSetWriter.getBuilder(dir).setManifest(new FileManifest(NamingStrategy.titles())).build();
+        summary = writer.write(Stream.of(RstFile.getBuilder("../escaped").build()));
+        assertEquals(1, summary.getFailures().size());
+        assertFalse(Files.exists(dir.resolve("../escaped.rst")));
+    }
+}
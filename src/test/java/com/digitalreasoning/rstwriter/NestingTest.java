@@ -1,7 +1,11 @@
 package com.digitalreasoning.rstwriter;
 
 import com.digitalreasoning.rstwriter.bodyelement.BulletList;
+import com.digitalreasoning.rstwriter.bodyelement.FieldList;
+import com.digitalreasoning.rstwriter.bodyelement.Paragraph;
 import com.digitalreasoning.rstwriter.bodyelement.Table;
+import com.digitalreasoning.rstwriter.directive.Admonition;
+import com.digitalreasoning.rstwriter.directive.BaseDirective;
 import org.junit.Test;
 import static org.junit.Assert.*;
 /**
@@ -46,4 +50,67 @@ public class NestingTest {
         }
         assertEquals(listString[7], "* item3");
     }
+
+    @Test
+    public void deepNesting(){
+        Admonition note = new Admonition(Admonition.Type.NOTE, "note\n\ntext");
+        BulletList list = RstBodyElement.bulletList().addItem(note).addItem("item");
+        FieldList fields = RstBodyElement.fieldList().addItem("field", list);
+        BaseDirective directive = new BaseDirective("container").addContent(fields);
+        String indent = "    ";
+        String align = indent + "           ";
+        String expected = ".. container:: \n\n" +
+                indent + ":field:    * .. note:: \n" +
+                align + "  \n" +
+                align + "      note\n" +
+                align + "      \n" +
+                align + "      text\n" +
+                align + "* item\n";
+        assertEquals(expected, directive.write());
+        //the same element written at the top level and nested is rendered the same way
+        assertEquals(list.write(), RstBodyElement.bulletList().addItem(note).addItem("item").write());
+        assertEquals(expected, directive.write());
+    }
+
+    @Test
+    public void blankItemTest(){
+        //items that write only new lines are left out, while items that write nothing get an empty item
+        BulletList list = RstBodyElement.bulletList().addItem(new Paragraph("")).addItem(new Paragraph("\n\n"))
+                .addItem(RstBodyElement.bulletList("\n")).addItem(RstBodyElement.lineBlock("")).addItem("x");
+        assertEquals("* \n* \n* x\n", list.write());
+        RstBodyElement newLines = () -> "\n\n";
+        assertTrue(newLines.isBlank());
+        assertEquals("* x\n", RstBodyElement.bulletList().addItem(newLines).addItem("x").write());
+        assertFalse(new Paragraph(" ").isBlank());
+        assertFalse(new BaseDirective("note").isBlank());
+    }
+
+    @Test
+    public void nestedRenderedOnceTest(){
+        int[] renders = {0};
+        //immutable, so it is nested as it is instead of as a rendered copy
+        RstBodyElement counted = new RstBodyElement(){
+            @Override
+            public String write(){
+                renders[0]++;
+                return "text\n";
+            }
+
+            @Override
+            public RstBodyElement freeze(){
+                return this;
+            }
+        };
+        BulletList list = RstBodyElement.bulletList().addItem(counted);
+        int afterAdd = renders[0];
+        //adding the list to other elements doesn't render what is nested in it again
+        RstBodyElement nested = list;
+        for(int i = 0; i < 10; i++){
+            nested = i % 2 == 0 ? RstBodyElement.bulletList().addItem(nested)
+                    : RstBodyElement.fieldList().addItem("f" + i, nested);
+        }
+        nested = new BaseDirective("container").addContent(nested);
+        RstBodyElement.bulletList().addItem(nested);
+        assertEquals(afterAdd, renders[0]);
+    }
 }
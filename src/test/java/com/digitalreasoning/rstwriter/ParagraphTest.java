@@ -1,9 +1,11 @@
 package com.digitalreasoning.rstwriter;
 
+import java.io.IOException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.digitalreasoning.rstwriter.bodyelement.Paragraph;
+import com.digitalreasoning.rstwriter.bodyelement.Utils;
 import static com.digitalreasoning.rstwriter.Inline.*;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -114,4 +116,104 @@ public class ParagraphTest {
         }catch(IllegalArgumentException e){}
     }
 
+    @Test
+    public void inlineParseTest() throws IOException {
+        StringBuilder out = new StringBuilder("> ");
+        Utils.inlineParse("a$I, $$5 and$Ib", out, bold("x"), literal("y"));
+        assertEquals("> a\\ **x**\\ , $5 and\\ ``y``\\ b", out.toString());
+
+        out.setLength(0);
+        Utils.inlineParse("no escapes", out);
+        assertEquals("no escapes", out.toString());
+
+        try{
+            Utils.inlineParse("cost $5", new StringBuilder());
+            fail();
+        }catch(IllegalArgumentException e){
+            assertEquals("Unrecognized escape sequence: $5", e.getMessage());
+        }
+    }
+
+    @Test
+    public void inlineTemplateTest() throws IOException {
+        String[] patterns = {"$I failed on host $I", "a$I, $$5 and$Ib", "no escapes", "$I", "$$I $I$$"};
+        for(String pattern : patterns){
+            InlineTemplate template = InlineTemplate.compile(pattern);
+            Inline[] inlines = new Inline[template.getArgumentCount()];
+            for(int i = 0; i < inlines.length; i++){
+                inlines[i] = i % 2 == 0 ? bold("x" + i) : literal("y" + i);
+            }
+            assertEquals(new Paragraph(pattern, inlines).write(), new Paragraph(template, inlines).write());
+            StringBuilder expected = new StringBuilder();
+            Utils.inlineParse(pattern, expected, inlines);
+            StringBuilder out = new StringBuilder();
+            template.writeTo(out, inlines);
+            assertEquals(expected.toString(), out.toString());
+            assertEquals(expected.toString(), template.format(inlines));
+            assertEquals(pattern, template.toString());
+        }
+
+        InlineTemplate template = InlineTemplate.compile("$I failed on host $I");
+        assertEquals(2, template.getArgumentCount());
+        assertEquals(new Paragraph("Step 1:").addText("$I failed on host $I", bold("build"), literal("node-1")).write(),
+                new Paragraph("Step 1:").addText(template, bold("build"), literal("node-1")).write());
+        try{
+            template.format(bold("build"));
+            fail();
+        }catch(IllegalArgumentException e){
+            assertEquals("Too few Inline arguments given", e.getMessage());
+        }
+        try{
+            template.format(bold("build"), bold("a"), bold("b"));
+            fail();
+        }catch(IllegalArgumentException e){
+            assertEquals("Too many inline arguments given", e.getMessage());
+        }
+        try{
+            InlineTemplate.compile("cost $5");
+            fail();
+        }catch(IllegalArgumentException e){
+            assertEquals("Unrecognized escape sequence: $5", e.getMessage());
+        }
+    }
+
+    @Test
+    public void composedInlineTest() throws IOException {
+        Inline failure = sequence(bold("Build"), text(" failed on "), literal("node-1"));
+        assertEquals("**Build** failed on ``node-1``", failure.write());
+        assertEquals("**a**\\ ``b``", sequence(bold("a"), literal("b")).write());
+        StringBuilder parsed = new StringBuilder();
+        Utils.inlineParse("x$I, $I", parsed, bold("a"), italics("b"));
+        assertEquals(parsed.toString(), sequence(text("x"), bold("a"), text(", "), italics("b")).write());
+        assertEquals("`issue #12 <https://x>`_", link(sequence(text("issue "), text("#12")), "https://x").write());
+        assertEquals(":sub:`x\\ \\`\\`y\\`\\``", role("sub", sequence(text("x"), literal("y"))).write());
+        assertEquals("**a\\*\\*b**", bold(text("a**b")).write());
+        assertEquals("", sequence(text(""), sequence()).write());
+
+        //backslashes aren't escapes in a literal, which shows the text of its content
+        for(String str : new String[]{"a*b", "a``b", "`x` **y** \\z", ""}){
+            assertEquals(literal(str).write(), literal(text(str)).write());
+            assertEquals(literal(str).write(), literal(Inline.cached().text(str)).write());
+        }
+        assertEquals("``a b``", literal(sequence(text("a "), bold("b"))).write());
+        assertEquals("``a\\``b``", literal(sequence(italics("a"), literal("``b"))).write());
+
+        Inline[] parts = {text("plain "), bold("b**"), literal("l``"), italics("*i"), link("n`", "u"), text(" "),
+                substitution("s|"), role("r", "`"), text("*"), sequence(bold("x"), text("y")), text("")};
+        for(int i = 0; i < parts.length; i++){
+            Inline composed = sequence(parts[i], parts[(i + 3) % parts.length], bold(parts[(i + 5) % parts.length]));
+            assertEquals(composed.write().length(), composed.length());
+            assertEquals(parts[i].write().length(), parts[i].length());
+            Inline wrapped = role("r", composed);
+            assertEquals(wrapped.write().length(), wrapped.length());
+            Inline literal = literal(composed);
+            assertEquals(literal.write().length(), literal.length());
+        }
+
+        Paragraph paragraph = new Paragraph(failure).addText(", see $I", link("the log"));
+        Paragraph frozen = paragraph.freeze();
+        paragraph.addText(text(" later"));
+        assertEquals("**Build** failed on ``node-1``, see `the log`_\n", frozen.write());
+        assertEquals("**Build** failed on ``node-1``, see `the log`_ later\n", paragraph.write());
+    }
 }
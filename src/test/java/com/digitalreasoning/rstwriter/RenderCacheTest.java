@@ -0,0 +1,128 @@
+package com.digitalreasoning.rstwriter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class RenderCacheTest {
+
+    private static Heading glossary(){
+        return Heading.getBuilder("Glossary")
+                .addParagraph("Terms used throughout")
+                .openSubHeading("Terms")
+                .addBodyElement(RstBodyElement.definitionList().addItem("rst", "reStructuredText"))
+                .closeSubHeading()
+                .build();
+    }
+
+    @Test
+    public void cachedWriteTest(){
+        Heading glossary = glossary();
+        RenderCache cache = new RenderCache(16);
+        for(int i = 0; i < 3; i++){
+            RstFile file = RstFile.getBuilder("doc" + i).addParagraph("Document " + i).addHeading(glossary).build();
+            assertEquals(file.write(), file.write(cache));
+        }
+        //the glossary and its subheading are rendered twice and cached the second time, then the glossary is found in
+        //the cache
+        assertEquals(4, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.size());
+        assertEquals(glossary.write(), glossary.write(cache));
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void nestedReuseTest(){
+        Heading glossary = glossary();
+        RenderCache cache = new RenderCache(16);
+        for(int i = 0; i < 5; i++){
+            RstFile file = RstFile.getBuilder("doc" + i)
+                    .addHeading(Heading.getBuilder("Chapter " + i).addSubHeading(glossary).build()).build();
+            assertEquals(file.write(), file.write(cache));
+        }
+        //the glossary is reused under chapters that are written once, which are never cached
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getHits());
+        assertEquals(9, cache.getMisses());
+    }
+
+    @Test
+    public void depthKeyTest(){
+        Heading glossary = glossary();
+        RenderCache cache = new RenderCache(16);
+        RstFile top = RstFile.getBuilder("top").addHeading(glossary).build();
+        RstFile nested = RstFile.getBuilder("nested")
+                .addHeading(Heading.getBuilder("Appendix").addSubHeading(glossary).build()).build();
+        assertEquals(top.write(), top.write(cache));
+        assertEquals(nested.write(), nested.write(cache));
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void evictionTest(){
+        RenderCache cache = new RenderCache(2);
+        List<RstFile> files = new ArrayList<>();
+        for(int i = 0; i < 3; i++){
+            files.add(RstFile.getBuilder("doc" + i).addHeading(Heading.getBuilder("Heading " + i).build()).build());
+        }
+        for(RstFile file : files){
+            file.write(cache);
+            file.write(cache);
+        }
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        //the first heading was the least recently used, and is cached again once it is seen twice again
+        files.get(0).write(cache);
+        assertEquals(7, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+        files.get(0).write(cache);
+        assertEquals(8, cache.getMisses());
+        assertEquals(2, cache.getEvictions());
+
+        RenderCache small = new RenderCache(16, 20);
+        RstFile file = RstFile.getBuilder("small")
+                .addHeading(Heading.getBuilder("A heading longer than twenty chars").build()).build();
+        assertEquals(file.write(), file.write(small));
+        assertEquals(file.write(), file.write(small));
+        assertEquals(0, small.size());
+        assertEquals(0, small.getCachedChars());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void boundsTest(){
+        new RenderCache(0);
+    }
+
+    @Test
+    public void sharedCacheTest() throws Exception {
+        Heading glossary = glossary();
+        RenderCache cache = new RenderCache(4);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try{
+            List<Future<Boolean>> results = new ArrayList<>();
+            for(int i = 0; i < 64; i++){
+                final int n = i;
+                results.add(executor.submit(() -> {
+                    RstFile file = RstFile.getBuilder("doc" + n).addParagraph("Document " + n)
+                            .addHeading(glossary).build();
+                    return file.write().equals(file.write(cache));
+                }));
+            }
+            for(Future<Boolean> result : results){
+                assertTrue(result.get());
+            }
+        }finally{
+            executor.shutdown();
+        }
+        //the glossary and its subheading, each cached once whichever threads saw them first
+        assertEquals(2, cache.size());
+        assertTrue(cache.getHits() > 0);
+    }
+}
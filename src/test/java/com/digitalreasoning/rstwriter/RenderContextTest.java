@@ -0,0 +1,129 @@
+package com.digitalreasoning.rstwriter;
+
+import com.digitalreasoning.rstwriter.directive.Admonition;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class RenderContextTest {
+
+    private static RstFile entity(int n){
+        return RstFile.getBuilder("entity" + n).addParagraph("Entity $I number " + n, Inline.bold("\u00e9"))
+                .addHeading(Heading.getBuilder("Attributes").addBodyElement(RstBodyElement.fieldList()
+                        .addItem("id", "" + n).addItem("name", "entity " + n)).build())
+                .build();
+    }
+
+    @Test
+    public void reusedContextTest() throws IOException {
+        RenderContext context = new RenderContext();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for(int i = 0; i < 100; i++){
+            RstFile file = entity(i);
+            String expected = file.write();
+            assertEquals(expected, file.write(context));
+
+            byte[] bytes = expected.getBytes(StandardCharsets.UTF_8);
+            stream.reset();
+            assertEquals(bytes.length, file.writeTo(stream, context));
+            assertArrayEquals(bytes, stream.toByteArray());
+
+            ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+            assertEquals(bytes.length, file.writeTo(buffer, context));
+            assertArrayEquals(bytes, buffer.array());
+        }
+        Heading h = Heading.getBuilder("heading").openSubHeading("sub").addTransition().closeSubHeading().build();
+        assertEquals(h.write(), h.write(context));
+    }
+
+    @Test
+    public void largeDocumentTest(){
+        RstFile.Builder builder = RstFile.getBuilder("large");
+        for(int i = 0; i < 20000; i++){
+            builder.addParagraph("A paragraph long enough to grow the buffer past the retained size " + i);
+        }
+        RstFile large = builder.build();
+        RenderContext context = new RenderContext();
+        assertEquals(large.write(), large.write(context));
+        assertEquals(entity(1).write(), entity(1).write(context));
+    }
+
+    @Test
+    public void currentContextTest() throws Exception {
+        RenderContext context = RenderContext.current();
+        assertSame(context, RenderContext.current());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try{
+            assertNotSame(context, executor.submit(RenderContext::current).get());
+        }finally{
+            executor.shutdown();
+        }
+        assertEquals(entity(2).write(), entity(2).write(RenderContext.current()));
+    }
+
+    @Test
+    public void reentrantUseTest(){
+        RenderContext context = new RenderContext();
+        RstBodyElement nested = new RstBodyElement() {
+            @Override
+            public String write(){
+                return entity(3).write(context);
+            }
+
+            @Override
+            public RstBodyElement freeze(){
+                return this;
+            }
+        };
+        RstFile file = RstFile.getBuilder("outer").addBodyElement(nested).build();
+        try{
+            file.write(context);
+            fail("Nested use of a context should fail");
+        }catch(IllegalStateException e){
+            assertEquals("This RenderContext is already rendering a document", e.getMessage());
+        }
+        //the context can be used again after the failed render
+        assertEquals(entity(3).write(), entity(3).write(context));
+    }
+
+    @Test
+    public void steadyStateAllocationTest(){
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        RstFile file = RstFile.getBuilder("nested")
+                .addBodyElement(RstBodyElement.bulletList("first\nsecond").addSubList(RstBodyElement.bulletList("a\nb")))
+                .addBodyElement(RstBodyElement.fieldList().addItem("id", "1").addItem("list",
+                        RstBodyElement.numberedList("one\ntwo")))
+                .addBodyElement(new Admonition(Admonition.Type.NOTE, "A note").addContent(
+                        RstBodyElement.definitionList().addItem("term", "definition")))
+                .build();
+        RenderContext context = new RenderContext();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for(int i = 0; i < 20000; i++){
+            buffer.clear();
+            file.writeTo(buffer, context);
+        }
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for(int i = 0; i < 1000; i++){
+            buffer.clear();
+            file.writeTo(buffer, context);
+        }
+        //nested lists, field lists and directives share the context's indenting sink, so each render of this document
+        //only allocates a few hundred bytes of iterators and small objects
+        long perRender = (threads.getThreadAllocatedBytes(thread) - before) / 1000;
+        assertTrue("allocated " + perRender + " bytes per render", perRender < 1024);
+    }
+}
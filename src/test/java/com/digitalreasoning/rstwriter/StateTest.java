@@ -1,10 +1,15 @@
 package com.digitalreasoning.rstwriter;
 
 import com.digitalreasoning.rstwriter.bodyelement.BulletList;
+import com.digitalreasoning.rstwriter.bodyelement.LinkDefinition;
 import com.digitalreasoning.rstwriter.bodyelement.Table;
+import com.digitalreasoning.rstwriter.directive.Contents;
 import com.digitalreasoning.rstwriter.directive.Image;
 
 import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
 import static org.junit.Assert.*;
 
 /**
@@ -68,4 +73,45 @@ public class StateTest
 		String result1 = result + "| g | h | i |\n+---+---+---+\n";
 		assertEquals("Second table fail", result1, t1.write());
 	}
+
+	@Test
+	public void frozenElementTest(){
+		Image image = new Image("img.jpeg").setWidth(10);
+		Contents contents = new Contents().setDepth(1);
+		Heading.Builder builder = Heading.getBuilder("heading").addDirective(image).addDirective(contents);
+		image.setHeight(20);
+		contents.setTitle("title");
+		Heading h = builder.build();
+		String result = "########\nheading\n########\n\n.. image:: img.jpeg\n" + INDENT + ":width:    10\n\n" +
+				".. contents:: \n" + INDENT + ":depth:    1\n\n";
+		assertEquals("Frozen directive fail", result, h.write());
+		assertEquals("Repeated write fail", result, h.write());
+		assertEquals(".. image:: img.jpeg\n" + INDENT + ":height:    20\n" + INDENT + ":width:    10\n", image.write());
+		assertEquals(image.write(), image.write());
+	}
+
+	@Test
+	public void snapshotTest(){
+		RstFile.Builder builder = RstFile.getBuilder("file");
+		Heading.Builder heading = Heading.getBuilder("heading").addLinkTarget("heading");
+		List<RstFile> files = new ArrayList<>();
+		List<Heading> headings = new ArrayList<>();
+		for(int i = 0; i < 50; i++){
+			builder.addParagraph("paragraph " + i).addDefinition(new LinkDefinition("link" + i, "url" + i));
+			heading.addParagraph("paragraph " + i).addLinkTarget("target" + i);
+			files.add(builder.build());
+			headings.add(heading.build());
+		}
+		String paragraphs = "";
+		String definitions = "";
+		String targets = ".. _heading: \n";
+		for(int i = 0; i < 50; i++){
+			paragraphs += "paragraph " + i + "\n\n";
+			definitions += ".. _link" + i + ": url" + i + "\n";
+			targets += ".. _target" + i + ": \n";
+			assertEquals("Snapshot " + i + " fail", paragraphs + definitions + "\n", files.get(i).write());
+			assertEquals("Heading snapshot " + i + " fail", targets + "\n########\nheading\n########\n\n" + paragraphs,
+					headings.get(i).write());
+		}
+	}
 }
@@ -0,0 +1,111 @@
+package com.digitalreasoning.rstwriter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class TocTreeIndexTest {
+
+    private static Path directory(String name) throws IOException {
+        Path dir = Paths.get("target/test/" + name);
+        if(Files.exists(dir)){
+            try(Stream<Path> files = Files.walk(dir)){
+                for(Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator){
+                    Files.delete(p);
+                }
+            }
+        }
+        return Files.createDirectories(dir);
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void singlePageTest() throws IOException {
+        Path dir = directory("toc-single");
+        TocTreeIndex index = TocTreeIndex.getBuilder(dir).setTitle("Pages").build();
+        index.add(dir.resolve("b.rst")).add(dir.resolve("sub/a.rst"));
+        Path root = index.finish();
+        assertEquals(dir.resolve("index.rst"), root);
+        assertEquals("######\nPages\n######\n\n.. toctree:: \n    :maxdepth:    1\n\n    /b\n    /sub/a\n\n",
+                read(root));
+        assertEquals(root, index.finish());
+        try{
+            index.add(dir.resolve("c.rst"));
+            fail();
+        }catch(IllegalStateException e){
+            //expected: the index is finished
+        }
+        try{
+            TocTreeIndex.getBuilder(dir).build().add(Paths.get("elsewhere.rst"));
+            fail();
+        }catch(IllegalArgumentException e){
+            //expected: the file is outside of the directory
+        }
+    }
+
+    @Test
+    public void hierarchyTest() throws IOException {
+        Path dir = directory("toc-pages");
+        TocTreeIndex index = TocTreeIndex.getBuilder(dir).setMaxEntries(3).build();
+        for(int i = 1; i <= 7; i++){
+            index.add(dir.resolve("doc" + i + ".rst"));
+        }
+        //two full pages are written as soon as the next file arrives
+        Path pages = dir.resolve(TocTreeIndex.PAGE_DIRECTORY);
+        assertTrue(read(pages.resolve("index-1-1.rst")).contains("    /doc1\n    /doc2\n    /doc3\n"));
+        assertTrue(read(pages.resolve("index-1-2.rst")).contains("    /doc4\n    /doc5\n    /doc6\n"));
+        assertFalse(Files.exists(dir.resolve("index.rst")));
+
+        index.finish();
+        assertTrue(read(pages.resolve("index-1-3.rst")).contains("Index 7-7\n"));
+        String root = read(dir.resolve("index.rst"));
+        assertTrue(root, root.contains("    Index 1-3 </_index/index-1-1>\n    Index 4-6 </_index/index-1-2>\n" +
+                "    Index 7-7 </_index/index-1-3>\n"));
+        assertEquals(7, index.getFiles());
+
+        //a second level appears once the root would hold more than 3 pages
+        dir = directory("toc-levels");
+        index = TocTreeIndex.getBuilder(dir).setMaxEntries(3).build();
+        for(int i = 1; i <= 10; i++){
+            index.add(dir.resolve("doc" + i + ".rst"));
+        }
+        index.finish();
+        root = read(dir.resolve("index.rst"));
+        assertTrue(root, root.contains("    Index 1-9 </_index/index-2-1>\n    Index 10-10 </_index/index-2-2>\n"));
+        assertTrue(read(pages.resolve("../../toc-levels/_index/index-2-1.rst"))
+                .contains("    Index 7-9 </_index/index-1-3>\n"));
+    }
+
+    @Test
+    public void documentSetTest() throws Exception {
+        Path dir = directory("toc-set");
+        TocTreeIndex index = TocTreeIndex.getBuilder(dir).setMaxEntries(10).build();
+        DocumentSetWriter writer = DocumentSetWriter.getBuilder(dir).setThreads(4).setIndex(index).build();
+        DocumentSetWriter.Summary summary = writer.write(IntStream.range(0, 50)
+                .mapToObj(i -> RstFile.getBuilder(i == 17 ? "broken/page" : "page" + i).addParagraph("Page").build()));
+        assertEquals(1, summary.getFailures().size());
+        index.finish();
+
+        StringBuilder expected = new StringBuilder();
+        for(int i = 10; i < 20; i++){
+            if(i != 17){
+                expected.append("    /page").append(i).append('\n');
+            }
+        }
+        expected.append("    /page20\n");
+        assertTrue(read(dir.resolve("_index/index-1-2.rst")).contains(expected));
+        assertTrue(read(dir.resolve("index.rst")).contains("    Index 41-49 </_index/index-1-5>\n"));
+    }
+}